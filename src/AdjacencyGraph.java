@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Which rooms share a wall, and over exactly which part of it.
+ * Each room keeps, per wall, the intervals it shares with its neighbours, ordered
+ * along the wall; whatever is not shared is exterior. The graph is kept up to date
+ * one room at a time, finding the new neighbours of a moved room through the room
+ * index, so asking whether a door or window faces out is a lookup on one wall.
+ */
+public class AdjacencyGraph {
+    static final int TOUCH_DISTANCE = 1; // Walls at most this far apart count as shared
+
+    private final SpatialGrid<Room> index;
+    private final IdentityHashMap<Room, Node> nodes = new IdentityHashMap<>();
+    private final ArrayList<Room> neighbourQuery = new ArrayList<>();
+
+    /**
+     * The part of one of a room's walls that it shares with a neighbour.
+     */
+    public static final class SharedWall {
+        public final Room neighbour;
+        public final int wall;   // Fixtures.TOP, RIGHT, BOTTOM or LEFT of the room this belongs to
+        public final int start;  // Span along that wall, measured from its top or left end
+        public final int end;
+
+        SharedWall(Room neighbour, int wall, int start, int end) {
+            this.neighbour = neighbour;
+            this.wall = wall;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static final class Node {
+        int x, y, width, height; // Bounds the shared walls were computed from
+        final List<ArrayList<SharedWall>> walls = new ArrayList<>(4); // Indexed by Fixtures.TOP, RIGHT, BOTTOM and LEFT
+
+        Node() {
+            for (int i = 0; i < 4; i++) {
+                walls.add(new ArrayList<>());
+            }
+        }
+
+        void add(SharedWall shared) {
+            ArrayList<SharedWall> list = walls.get(shared.wall);
+            int i = list.size();
+            while (i > 0 && list.get(i - 1).start > shared.start) {
+                i--;
+            }
+            list.add(i, shared);
+        }
+
+        void removeNeighbour(Room neighbour) {
+            for (ArrayList<SharedWall> list : walls) {
+                list.removeIf(shared -> shared.neighbour == neighbour);
+            }
+        }
+    }
+
+    /**
+     * @param index The room index, used to find the rooms next to a room; it must be updated before this graph
+     */
+    public AdjacencyGraph(SpatialGrid<Room> index) {
+        this.index = index;
+    }
+
+    /**
+     * Recomputes the walls a room shares after it was added, moved, resized or rotated.
+     */
+    public void update(Room room) {
+        Node existing = nodes.get(room);
+        if (existing != null && existing.x == room.x && existing.y == room.y
+                && existing.width == room.width && existing.height == room.height) {
+            return;
+        }
+        remove(room);
+        Node node = nodeOf(room);
+        node.x = room.x;
+        node.y = room.y;
+        node.width = room.width;
+        node.height = room.height;
+
+        neighbourQuery.clear();
+        index.query(room.x - TOUCH_DISTANCE, room.y - TOUCH_DISTANCE,
+                room.width + 2 * TOUCH_DISTANCE, room.height + 2 * TOUCH_DISTANCE, neighbourQuery);
+        for (Room other : neighbourQuery) {
+            if (other != room) {
+                connect(room, other);
+            }
+        }
+    }
+
+    public void remove(Room room) {
+        Node node = nodes.remove(room);
+        if (node == null) {
+            return;
+        }
+        for (ArrayList<SharedWall> list : node.walls) {
+            for (SharedWall shared : list) {
+                Node neighbour = nodes.get(shared.neighbour);
+                if (neighbour != null) {
+                    neighbour.removeNeighbour(room);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        nodes.clear();
+    }
+
+    /**
+     * Returns the parts of a wall shared with neighbouring rooms, ordered along the wall.
+     */
+    public List<SharedWall> getSharedWalls(Room room, int wall) {
+        Node node = nodes.get(room);
+        return node == null ? Collections.emptyList() : Collections.unmodifiableList(node.walls.get(wall));
+    }
+
+    /**
+     * Returns the rooms that share a wall with the given room.
+     */
+    public List<Room> getNeighbours(Room room) {
+        ArrayList<Room> neighbours = new ArrayList<>();
+        Node node = nodes.get(room);
+        if (node != null) {
+            for (ArrayList<SharedWall> list : node.walls) {
+                for (SharedWall shared : list) {
+                    if (!neighbours.contains(shared.neighbour)) {
+                        neighbours.add(shared.neighbour);
+                    }
+                }
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * Returns how much of [start, end) on a wall is shared with neighbouring rooms.
+     */
+    public int sharedLength(Room room, int wall, int start, int end) {
+        int covered = 0;
+        int reached = start; // Shared intervals of neighbours within TOUCH_DISTANCE can overlap slightly
+        for (SharedWall shared : getSharedWalls(room, wall)) {
+            if (shared.start >= end) {
+                break;
+            }
+            int from = Math.max(shared.start, reached);
+            int to = Math.min(shared.end, end);
+            if (to > from) {
+                covered += to - from;
+                reached = to;
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * Returns true if no part of [start, end) on a wall is shared with another room.
+     */
+    public boolean isExterior(Room room, int wall, int start, int end) {
+        return sharedLength(room, wall, start, end) == 0;
+    }
+
+    /**
+     * Returns true if all of [start, end) on a wall is shared with other rooms.
+     */
+    public boolean isShared(Room room, int wall, int start, int end) {
+        return sharedLength(room, wall, start, end) == end - start;
+    }
+
+    /**
+     * Returns the exterior parts of a wall as {start, end} pairs, ordered along the wall.
+     */
+    public List<int[]> getExteriorSegments(Room room, int wall) {
+        ArrayList<int[]> segments = new ArrayList<>();
+        int length = room.getWallLength(wall);
+        int reached = 0;
+        for (SharedWall shared : getSharedWalls(room, wall)) {
+            if (shared.start > reached) {
+                segments.add(new int[]{reached, Math.min(shared.start, length)});
+            }
+            reached = Math.max(reached, shared.end);
+        }
+        if (reached < length) {
+            segments.add(new int[]{reached, length});
+        }
+        return segments;
+    }
+
+    private Node nodeOf(Room room) {
+        return nodes.computeIfAbsent(room, r -> new Node());
+    }
+
+    private void connect(Room a, Room b) {
+        if (Math.abs(a.x + a.width - b.x) <= TOUCH_DISTANCE) {
+            link(a, Fixtures.RIGHT, b, Fixtures.LEFT, a.y, b.y, Math.max(a.y, b.y), Math.min(a.y + a.height, b.y + b.height));
+        }
+        if (Math.abs(b.x + b.width - a.x) <= TOUCH_DISTANCE) {
+            link(a, Fixtures.LEFT, b, Fixtures.RIGHT, a.y, b.y, Math.max(a.y, b.y), Math.min(a.y + a.height, b.y + b.height));
+        }
+        if (Math.abs(a.y + a.height - b.y) <= TOUCH_DISTANCE) {
+            link(a, Fixtures.BOTTOM, b, Fixtures.TOP, a.x, b.x, Math.max(a.x, b.x), Math.min(a.x + a.width, b.x + b.width));
+        }
+        if (Math.abs(b.y + b.height - a.y) <= TOUCH_DISTANCE) {
+            link(a, Fixtures.TOP, b, Fixtures.BOTTOM, a.x, b.x, Math.max(a.x, b.x), Math.min(a.x + a.width, b.x + b.width));
+        }
+    }
+
+    /**
+     * Records that [from, to) in world coordinates is shared by a wall of each room.
+     *
+     * @param originA World coordinate where a's wall starts
+     * @param originB World coordinate where b's wall starts
+     */
+    private void link(Room a, int wallA, Room b, int wallB, int originA, int originB, int from, int to) {
+        if (to <= from) {
+            return; // Only touching at a corner
+        }
+        nodeOf(a).add(new SharedWall(b, wallA, from - originA, to - originA));
+        nodeOf(b).add(new SharedWall(a, wallB, from - originB, to - originB));
+    }
+}
@@ -0,0 +1,186 @@
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.function.Supplier;
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ * The images furniture is drawn with, each held once under a stable identifier.
+ * Furniture refers to its Asset instead of owning pixels, so a plan saved with
+ * Java serialization writes each distinct image once and refers back to it for
+ * every other piece; loading decodes it once, or not at all if the image is
+ * already registered.
+ */
+public class AssetRegistry {
+    private static final AssetRegistry SHARED = new AssetRegistry();
+    private static final String EMBEDDED_PREFIX = "embedded:"; // Images with no catalog entry, named by their content
+
+    private final HashMap<String, Asset> byId = new HashMap<>();
+    private final IdentityHashMap<Image, Asset> byImage = new IdentityHashMap<>();
+
+    /**
+     * An image and the identifier it is stored under. Serialized as the identifier
+     * and the PNG-encoded image; deserializing resolves to the registered asset with
+     * the same identifier, so every piece of furniture shares one decoded image.
+     */
+    public static final class Asset implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String id;
+        private byte[] png; // Encoded when first saved
+        private transient Image image;
+
+        private Asset(String id, Image image) {
+            this.id = id;
+            this.image = image;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Image getImage() {
+            return image;
+        }
+
+        /**
+         * Returns the image encoded as PNG, encoding it on first use.
+         */
+        synchronized byte[] getPng() throws IOException {
+            if (png == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageIO.write(toBufferedImage(image), "png", out);
+                png = out.toByteArray();
+            }
+            return png;
+        }
+
+        private void writeObject(ObjectOutputStream oos) throws IOException {
+            getPng();
+            oos.defaultWriteObject();
+        }
+
+        private Object readResolve() throws IOException {
+            return SHARED.resolve(id, png);
+        }
+    }
+
+    public static AssetRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the asset registered under the given identifier, loading and registering it first if needed.
+     */
+    public synchronized Asset get(String id, Supplier<Image> loader) {
+        Asset asset = byId.get(id);
+        if (asset == null) {
+            asset = new Asset(id, loader.get());
+            register(asset);
+        }
+        return asset;
+    }
+
+    /**
+     * Returns the asset for an image that was not loaded through {@link #get}, such as one
+     * read from an older plan. Images with the same pixels share one asset.
+     */
+    public synchronized Asset forImage(Image image) {
+        Asset asset = byImage.get(image);
+        if (asset == null) {
+            String id = EMBEDDED_PREFIX + contentHash(toBufferedImage(image));
+            asset = byId.get(id);
+            if (asset == null) {
+                asset = new Asset(id, image);
+                register(asset);
+            } else {
+                byImage.put(image, asset);
+            }
+        }
+        return asset;
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * Returns the registered asset with the given identifier, or registers one decoded
+     * from the PNG bytes read from a plan if the identifier is new.
+     */
+    synchronized Asset resolve(String id, byte[] png) throws IOException {
+        Asset asset = byId.get(id);
+        if (asset != null) {
+            synchronized (asset) {
+                if (asset.png == null) {
+                    asset.png = png; // Saves re-encoding it on the next save
+                }
+            }
+            return asset;
+        }
+        Image image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            throw new IOException("Unreadable image for asset " + id);
+        }
+        asset = new Asset(id, image);
+        asset.png = png;
+        register(asset);
+        return asset;
+    }
+
+    private void register(Asset asset) {
+        byId.put(asset.id, asset);
+        byImage.put(asset.image, asset);
+    }
+
+    private static BufferedImage toBufferedImage(Image image) {
+        if (image instanceof BufferedImage) {
+            return (BufferedImage) image;
+        }
+        ImageIcon loaded = new ImageIcon(image); // Waits for toolkit images to finish loading
+        BufferedImage buffered = new BufferedImage(loaded.getIconWidth(), loaded.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = buffered.createGraphics();
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return buffered;
+    }
+
+    private static String contentHash(BufferedImage image) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int[] row = new int[width];
+            byte[] bytes = new byte[width * 4];
+            digest.update(new byte[]{(byte) (width >> 24), (byte) (width >> 16), (byte) (width >> 8), (byte) width,
+                    (byte) (height >> 24), (byte) (height >> 16), (byte) (height >> 8), (byte) height});
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int i = 0; i < width; i++) {
+                    bytes[4 * i] = (byte) (row[i] >> 24);
+                    bytes[4 * i + 1] = (byte) (row[i] >> 16);
+                    bytes[4 * i + 2] = (byte) (row[i] >> 8);
+                    bytes[4 * i + 3] = (byte) row[i];
+                }
+                digest.update(bytes);
+            }
+            StringBuilder hex = new StringBuilder();
+            byte[] hash = digest.digest();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every Java platform provides SHA-256
+        }
+    }
+}
@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses and decompresses the blocks of a plan file, each on its own so any block
+ * can still be read without the others. A block is stored as is whenever compressing
+ * does not make it smaller, which is the case for most PNG images.
+ * <p>
+ * LZ is a byte-oriented LZ77 in the style of LZ4: a token byte holding a literal length
+ * and a match length in its two nibbles, each continued in further bytes of 255 while
+ * the nibble is 15, the literals, then a 2-byte match offset. The last sequence has no
+ * match. It trades some size for speed: nothing is entropy coded.
+ * <p>
+ * Not thread safe; every reader and writer uses its own.
+ */
+class BlockCodec {
+    static final byte STORED = 0;
+    static final byte DEFLATE = 1;
+    static final byte LZ = 2;
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_BITS = 12;
+
+    private Deflater deflater;
+    private Inflater inflater;
+    private final int[] matchTable = new int[1 << HASH_BITS]; // Last position + tableBase of each hashed 4 bytes
+    private int tableBase = 1;
+    private byte[] buffer = new byte[1024];
+    private byte[] output;
+    private int outputLength;
+
+    /**
+     * Compresses the first length bytes of data and returns how they are to be stored;
+     * the bytes to store are then {@link #output()} up to {@link #outputLength()}.
+     */
+    byte compress(byte[] data, int length, PlanFormat.Compression compression) {
+        byte codec = STORED;
+        if (compression == PlanFormat.Compression.FAST) {
+            outputLength = lzCompress(data, length);
+            codec = LZ;
+        } else if (compression == PlanFormat.Compression.SMALLEST) {
+            outputLength = deflate(data, length);
+            codec = DEFLATE;
+        }
+        if (codec == STORED || outputLength >= length) {
+            output = data;
+            outputLength = length;
+            return STORED;
+        }
+        output = buffer;
+        return codec;
+    }
+
+    byte[] output() {
+        return output;
+    }
+
+    int outputLength() {
+        return outputLength;
+    }
+
+    /**
+     * Returns the rawLength bytes a block was compressed from; a stored block that is all of data may be data itself.
+     */
+    byte[] decompress(byte codec, byte[] data, int offset, int length, int rawLength) throws IOException {
+        if (codec == STORED && length != rawLength) {
+            throw new IOException("Stored block of the wrong length");
+        }
+        if (codec == STORED && offset == 0 && data.length == length) {
+            return data;
+        }
+        byte[] raw = new byte[rawLength];
+        if (codec == STORED) {
+            System.arraycopy(data, offset, raw, 0, length);
+        } else if (codec == LZ) {
+            lzDecompress(data, offset, length, raw);
+        } else if (codec == DEFLATE) {
+            inflate(data, offset, length, raw);
+        } else {
+            throw new IOException("Unknown block compression " + codec);
+        }
+        return raw;
+    }
+
+    void close() {
+        if (deflater != null) {
+            deflater.end();
+        }
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    private int deflate(byte[] data, int length) {
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        int written = 0;
+        while (!deflater.finished()) {
+            if (written == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            written += deflater.deflate(buffer, written, buffer.length - written);
+        }
+        return written;
+    }
+
+    private void inflate(byte[] data, int offset, int length, byte[] raw) throws IOException {
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        inflater.reset();
+        inflater.setInput(data, offset, length);
+        try {
+            int read = 0;
+            while (read < raw.length) {
+                int count = inflater.inflate(raw, read, raw.length - read);
+                if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += count;
+            }
+            if (read != raw.length || !inflater.finished()) {
+                throw new IOException("Compressed block of the wrong length");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged compressed block", e);
+        }
+    }
+
+    private int lzCompress(byte[] data, int length) {
+        int bound = length + length / 255 + 16;
+        if (buffer.length < bound) {
+            buffer = new byte[Math.max(bound, buffer.length * 2)];
+        }
+        if (tableBase > Integer.MAX_VALUE - length - 1) {
+            Arrays.fill(matchTable, 0);
+            tableBase = 1;
+        }
+        // Entries below tableBase are from earlier blocks, which saves clearing the table for every block
+        int base = tableBase;
+        tableBase += length + 1;
+
+        int out = 0;
+        int anchor = 0;
+        int in = 0;
+        while (in + MIN_MATCH <= length) {
+            int sequence = readInt(data, in);
+            int hash = (sequence * -1640531535) >>> (32 - HASH_BITS);
+            int candidate = matchTable[hash] - base;
+            matchTable[hash] = in + base;
+            if (candidate < 0 || in - candidate > MAX_OFFSET || readInt(data, candidate) != sequence) {
+                in++;
+                continue;
+            }
+            int matchLength = MIN_MATCH;
+            while (in + matchLength < length && data[candidate + matchLength] == data[in + matchLength]) {
+                matchLength++;
+            }
+
+            int literalLength = in - anchor;
+            int matchCode = matchLength - MIN_MATCH;
+            buffer[out++] = (byte) (Math.min(literalLength, 15) << 4 | Math.min(matchCode, 15));
+            out = writeLength(literalLength, out);
+            System.arraycopy(data, anchor, buffer, out, literalLength);
+            out += literalLength;
+            int offset = in - candidate;
+            buffer[out++] = (byte) (offset >>> 8);
+            buffer[out++] = (byte) offset;
+            out = writeLength(matchCode, out);
+
+            in += matchLength;
+            anchor = in;
+        }
+
+        int literalLength = length - anchor;
+        buffer[out++] = (byte) (Math.min(literalLength, 15) << 4);
+        out = writeLength(literalLength, out);
+        System.arraycopy(data, anchor, buffer, out, literalLength);
+        return out + literalLength;
+    }
+
+    /**
+     * Writes what is left of a length past its nibble.
+     */
+    private int writeLength(int length, int out) {
+        if (length >= 15) {
+            length -= 15;
+            while (length >= 255) {
+                buffer[out++] = (byte) 255;
+                length -= 255;
+            }
+            buffer[out++] = (byte) length;
+        }
+        return out;
+    }
+
+    private static void lzDecompress(byte[] data, int offset, int length, byte[] raw) throws IOException {
+        int in = offset;
+        int end = offset + length;
+        int out = 0;
+        try {
+            while (true) {
+                if (in >= end) {
+                    throw new IOException("Damaged compressed block");
+                }
+                int token = data[in++] & 0xFF;
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int next;
+                    do {
+                        next = data[in++] & 0xFF;
+                        literalLength += next;
+                    } while (next == 255);
+                }
+                if (literalLength > end - in || literalLength > raw.length - out) {
+                    throw new IOException("Damaged compressed block");
+                }
+                System.arraycopy(data, in, raw, out, literalLength);
+                in += literalLength;
+                out += literalLength;
+                if (in == end) {
+                    break;
+                }
+
+                int matchOffset = (data[in++] & 0xFF) << 8 | data[in++] & 0xFF;
+                int matchLength = token & 0x0F;
+                if (matchLength == 15) {
+                    int next;
+                    do {
+                        next = data[in++] & 0xFF;
+                        matchLength += next;
+                    } while (next == 255);
+                }
+                matchLength += MIN_MATCH;
+                int from = out - matchOffset;
+                if (matchOffset == 0 || from < 0 || matchLength > raw.length - out || in > end) {
+                    throw new IOException("Damaged compressed block");
+                }
+                if (matchOffset >= matchLength) {
+                    System.arraycopy(raw, from, raw, out, matchLength);
+                } else {
+                    for (int i = 0; i < matchLength; i++) {
+                        raw[out + i] = raw[from + i]; // Byte by byte, as the match overlaps what it copies
+                    }
+                }
+                out += matchLength;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Damaged compressed block", e);
+        }
+        if (out != raw.length) {
+            throw new IOException("Compressed block of the wrong length");
+        }
+    }
+
+    private static int readInt(byte[] data, int i) {
+        return (data[i] & 0xFF) << 24 | (data[i + 1] & 0xFF) << 16 | (data[i + 2] & 0xFF) << 8 | data[i + 3] & 0xFF;
+    }
+}
@@ -0,0 +1,687 @@
+import java.awt.Image;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Appends every edit to a plan to a journal file, so the plan can be recovered if the
+ * application stops before it is saved.
+ * <p>
+ * Edits are collected on the EDT and written together once COMMIT_INTERVAL has passed
+ * since the first of them: the rooms that changed, or every room after an edit that may
+ * have added or removed some, are compared with what the journal last recorded for them,
+ * and only the differences are encoded, as one checksummed frame. Writing and syncing the
+ * frame happen on a background thread, so input is never held up by the disk. That thread
+ * also applies every frame to a copy of the plan of its own, so once the journal grows past
+ * COMPACT_THRESHOLD it can replace it by a snapshot of the plan in .plnt format and a new,
+ * empty journal without the EDT copying a single room.
+ * <p>
+ * Journals live in RECOVERY_DIRECTORY as {@code <session>-<generation>.journal}, next to
+ * the snapshot they start from, and are deleted when their window closes normally. Any
+ * journal still there that no running window holds a lock on was left by a crash.
+ */
+public class EditJournal {
+    static final Path RECOVERY_DIRECTORY = Paths.get(System.getProperty("user.home"), ".planit", "recovery");
+    private static final byte[] MAGIC = {'P', 'L', 'N', 'J'};
+    private static final int VERSION = 1;
+    private static final int COMMIT_INTERVAL = 250;         // Milliseconds edits are collected for before they are written
+    private static final long COMPACT_THRESHOLD = 1 << 20;  // Journal bytes after which it is folded into a snapshot
+
+    // Record types
+    private static final byte ROOM_ADDED = 1;     // int id
+    private static final byte ROOM_REMOVED = 2;   // int id
+    private static final byte ROOM_BOUNDS = 3;    // int id, x, y, width, height
+    private static final byte ROOM_LOCK = 4;      // int id, boolean lock
+    private static final byte ROOM_LABEL = 5;     // int id, UTF name, UTF type
+    private static final byte ROOM_FIXTURES = 6;  // int id, fixtures as in a .plnt room record
+    private static final byte ROOM_FURNITURE = 7; // int id, furniture as in a .plnt room record
+    private static final byte ASSET = 8;          // UTF id, int length, PNG bytes; numbered in the order written
+    private static final byte PLAN_PATH = 9;      // boolean saved, UTF path of the file the plan is saved to
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Supplier<List<Room>> rooms;
+    private final String session = UUID.randomUUID().toString();
+    private final Timer commitTimer;
+
+    // Touched only on the EDT
+    private final IdentityHashMap<Room, Entry> entries = new IdentityHashMap<>();
+    private final Set<Room> dirtyRooms = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean scanAll = false;
+    private final IdentityHashMap<Image, Integer> imageIndex = new IdentityHashMap<>(); // Images already in the journal's asset table
+    private int nextId = 0;
+    private int pass = 0;
+    private int generation = -1;
+    private long journalSize = 0;
+    private boolean suspended = false;
+    private boolean planPathRecorded = false;
+    private String planPath = null;
+
+    // Touched only on the writer thread
+    private FileChannel channel = null;
+    private int channelGeneration = -1; // Of the journal open in channel
+    private FileLock lock = null;
+    private final LinkedHashMap<Integer, Room> mirror = new LinkedHashMap<>(); // The plan as of the last frame, by room id
+    private final ArrayList<AssetRegistry.Asset> mirrorAssets = new ArrayList<>(); // The asset table of the current generation
+    private final String[] mirrorPlanPath = {null};
+
+    /**
+     * What the journal last recorded about a room.
+     */
+    private static final class Entry {
+        int id;
+        int x, y, width, height;
+        boolean lock;
+        String name, type;
+        int fixtureEdits, furnitureEdits; // Room.getFixtureEdits() and getFurnitureEdits() when last recorded
+        int seen;                 // The last pass that found the room in the plan
+
+        Entry(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * A plan rebuilt from a journal left behind by a crash.
+     */
+    static final class Recovery {
+        final String session;
+        final ArrayList<Room> rooms;
+        final String planPath; // File the plan was last saved to, or null
+
+        Recovery(String session, ArrayList<Room> rooms, String planPath) {
+            this.session = session;
+            this.rooms = rooms;
+            this.planPath = planPath;
+        }
+    }
+
+    /**
+     * Starts journaling the plan held by the given list, which may be replaced as a whole, e.g. by loading.
+     */
+    public EditJournal(Supplier<List<Room>> rooms) {
+        this.rooms = rooms;
+        commitTimer = new Timer(COMMIT_INTERVAL, e -> commit());
+        commitTimer.setRepeats(false);
+        restart();
+    }
+
+    /**
+     * Notes that the plan changed in a way that may have added or removed rooms, or that
+     * cannot be tied to particular rooms. The next commit compares every room.
+     */
+    public void changed() {
+        if (!suspended) {
+            scanAll = true;
+            if (!commitTimer.isRunning()) {
+                commitTimer.start();
+            }
+        }
+    }
+
+    /**
+     * Notes that a room, its fixtures or its furniture changed. Cheaper than changed() while
+     * dragging, as the next commit only compares the rooms named this way.
+     */
+    public void changed(Room room) {
+        if (!suspended) {
+            dirtyRooms.add(room);
+            if (!commitTimer.isRunning()) {
+                commitTimer.start();
+            }
+        }
+    }
+
+    /**
+     * Stops recording, e.g. while a plan is loaded into the window piece by piece.
+     */
+    public void suspend() {
+        suspended = true;
+        scanAll = false;
+        dirtyRooms.clear();
+        commitTimer.stop();
+    }
+
+    /**
+     * Resumes recording after the plan was replaced, starting a new journal from a snapshot of it.
+     */
+    public void resume() {
+        suspended = false;
+        restart();
+    }
+
+    /**
+     * Stops recording and deletes the journal, once the plan no longer needs recovering.
+     * Waits for the writer, so the application can exit straight after.
+     */
+    public void close() {
+        suspend();
+        int closedGeneration = generation;
+        try {
+            writer.submit(() -> {
+                closeChannel();
+                deleteGeneration(session, closedGeneration);
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the differences between the plan and what the journal last recorded as one frame.
+     */
+    private void commit() {
+        if (suspended) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ArrayList<Furniture> newImages = new ArrayList<>();
+        try {
+            recordChanges(out, newImages);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Writing to memory does not fail
+        }
+        if (bytes.size() == 0) {
+            return;
+        }
+        byte[] records = bytes.toByteArray();
+        int appendedGeneration = generation;
+        writer.execute(() -> append(appendedGeneration, newImages, records));
+        journalSize += records.length;
+        if (journalSize > COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    private void recordChanges(DataOutputStream out, List<Furniture> newImages) throws IOException {
+        if (!planPathRecorded || !Objects.equals(planPath, FileHandler.filePath)) {
+            planPath = FileHandler.filePath;
+            planPathRecorded = true;
+            out.writeByte(PLAN_PATH);
+            out.writeBoolean(planPath != null);
+            out.writeUTF(planPath != null ? planPath : "");
+        }
+
+        if (!scanAll) {
+            for (Room room : dirtyRooms) {
+                Entry entry = entries.get(room);
+                if (entry != null) { // Otherwise added or removed since, and found by the next full scan
+                    recordRoom(room, entry, false, out, newImages);
+                }
+            }
+            dirtyRooms.clear();
+            return;
+        }
+        scanAll = false;
+        dirtyRooms.clear();
+
+        pass++;
+        for (Room room : rooms.get()) {
+            Entry entry = entries.get(room);
+            boolean added = entry == null;
+            if (added) {
+                entry = new Entry(nextId++);
+                entries.put(room, entry);
+                out.writeByte(ROOM_ADDED);
+                out.writeInt(entry.id);
+            }
+            entry.seen = pass;
+            recordRoom(room, entry, added, out, newImages);
+        }
+
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry.seen != pass) {
+                out.writeByte(ROOM_REMOVED);
+                out.writeInt(entry.id);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Records whatever about a room differs from what the journal last recorded, or all of it for a new room.
+     */
+    private void recordRoom(Room room, Entry entry, boolean added, DataOutputStream out, List<Furniture> newImages) throws IOException {
+        if (added || entry.x != room.x || entry.y != room.y || entry.width != room.width || entry.height != room.height) {
+            out.writeByte(ROOM_BOUNDS);
+            out.writeInt(entry.id);
+            out.writeInt(room.x);
+            out.writeInt(room.y);
+            out.writeInt(room.width);
+            out.writeInt(room.height);
+        }
+        if (added || entry.lock != room.lock) {
+            out.writeByte(ROOM_LOCK);
+            out.writeInt(entry.id);
+            out.writeBoolean(room.lock);
+        }
+        if (added || !Objects.equals(entry.name, room.name) || !Objects.equals(entry.type, room.type)) {
+            out.writeByte(ROOM_LABEL);
+            out.writeInt(entry.id);
+            out.writeUTF(room.name == null ? "" : room.name);
+            out.writeUTF(room.type == null ? "" : room.type);
+        }
+        if (added ? !room.getFixtureList().isEmpty() : entry.fixtureEdits != room.getFixtureEdits()) {
+            out.writeByte(ROOM_FIXTURES);
+            out.writeInt(entry.id);
+            PlanFormat.writeFixtures(room.getFixtureList(), out);
+        }
+        if (added ? !room.getFurnitureList().isEmpty() : entry.furnitureEdits != room.getFurnitureEdits()) {
+            out.writeByte(ROOM_FURNITURE);
+            out.writeInt(entry.id);
+            PlanFormat.writeFurniture(room.getFurnitureList(), piece -> indexImage(piece, newImages), out);
+        }
+        remember(entry, room);
+    }
+
+    private static void remember(Entry entry, Room room) {
+        entry.x = room.x;
+        entry.y = room.y;
+        entry.width = room.width;
+        entry.height = room.height;
+        entry.lock = room.lock;
+        entry.name = room.name;
+        entry.type = room.type;
+        entry.fixtureEdits = room.getFixtureEdits();
+        entry.furnitureEdits = room.getFurnitureEdits();
+    }
+
+    /**
+     * Returns the position of a piece's image in the journal's asset table. Images new to the
+     * table are queued with a copy of the piece, and encoded on the writer thread.
+     */
+    private int indexImage(Furniture furniture, List<Furniture> newImages) {
+        Integer index = imageIndex.get(furniture.getImage());
+        if (index == null) {
+            index = imageIndex.size();
+            imageIndex.put(furniture.getImage(), index);
+            newImages.add(new Furniture(furniture));
+        }
+        return index;
+    }
+
+    /**
+     * Starts a new generation from a copy of the plan taken on the EDT, which the writer's
+     * own copy is reset to. Only needed once the plan was replaced as a whole.
+     */
+    private void restart() {
+        List<Room> current = rooms.get();
+        ArrayList<Room> snapshot = new ArrayList<>(current.size());
+        entries.clear();
+        nextId = 0;
+        for (Room room : current) {
+            snapshot.add(room.snapshot());
+            Entry entry = new Entry(nextId++); // Rooms in the snapshot are numbered in order
+            remember(entry, room);
+            entries.put(room, entry);
+        }
+        writer.execute(() -> {
+            mirror.clear();
+            for (int i = 0; i < snapshot.size(); i++) {
+                mirror.put(i, snapshot.get(i));
+            }
+        });
+        compact();
+    }
+
+    /**
+     * Starts a new generation: the writer's copy of the plan becomes its snapshot and the
+     * journal starts out empty. Rooms keep their ids, so the EDT only has to number images
+     * afresh. The previous generation is deleted once the new one is on disk.
+     */
+    private void compact() {
+        imageIndex.clear();
+        generation++;
+        journalSize = 0;
+        planPathRecorded = false;
+        int openedGeneration = generation;
+        writer.execute(() -> {
+            mirrorAssets.clear();
+            openGeneration(openedGeneration);
+        });
+        if (!suspended && !commitTimer.isRunning()) {
+            commitTimer.start(); // Records the plan path in the new journal
+        }
+    }
+
+    /**
+     * Writes the snapshot and header of a new generation. The header is the magic, version,
+     * generation and whether there is a snapshot, then the id of each room in the snapshot.
+     */
+    private void openGeneration(int openedGeneration) {
+        try {
+            Files.createDirectories(RECOVERY_DIRECTORY);
+            if (!mirror.isEmpty()) {
+                PlanFormat.write(new ArrayList<>(mirror.values()), snapshotPath(session, openedGeneration));
+            }
+            FileChannel next = FileChannel.open(journalPath(session, openedGeneration),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            FileLock nextLock = next.tryLock();
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(header);
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(openedGeneration);
+            out.writeBoolean(!mirror.isEmpty());
+            if (!mirror.isEmpty()) {
+                out.writeInt(mirror.size());
+                for (int id : mirror.keySet()) {
+                    out.writeInt(id);
+                }
+            }
+            writeFully(next, ByteBuffer.wrap(header.toByteArray()));
+            next.force(true);
+
+            closeChannel();
+            channel = next;
+            channelGeneration = openedGeneration;
+            lock = nextLock;
+            deleteGeneration(session, openedGeneration - 1);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends a frame to the journal of the given generation. If the frame cannot be written
+     * in full the generation is abandoned: its journal may end in a torn frame, and images
+     * the EDT numbered for it may be missing, so the EDT is asked to start a new one.
+     */
+    private void append(int appendedGeneration, List<Furniture> newImages, byte[] records) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.length + 8);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // Length and checksum, filled in below
+            out.writeInt(0);
+            for (Furniture furniture : newImages) {
+                AssetRegistry.Asset asset = furniture.getAsset();
+                byte[] png = asset.getPng();
+                out.writeByte(ASSET);
+                out.writeUTF(asset.getId());
+                out.writeInt(png.length);
+                out.write(png);
+            }
+            out.write(records);
+
+            ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+            // The copy follows the plan whether or not the frame reaches the disk, so the next generation starts from it
+            replay(new DataInputStream(new ByteArrayInputStream(frame.array(), 8, frame.limit() - 8)), mirror, mirrorAssets, mirrorPlanPath);
+            if (channel == null || channelGeneration != appendedGeneration) {
+                return; // The journal could not be opened, or was abandoned after a failed write
+            }
+            CRC32 crc = new CRC32();
+            crc.update(frame.array(), 8, frame.limit() - 8);
+            frame.putInt(0, frame.limit() - 8);
+            frame.putInt(4, (int) crc.getValue());
+            writeFully(channel, frame);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            closeChannel(); // Nothing more is appended after a frame that may be torn
+            SwingUtilities.invokeLater(() -> generationFailed(appendedGeneration));
+        }
+    }
+
+    /**
+     * Starts a new generation after a write to the given one failed, unless one was started since.
+     */
+    private void generationFailed(int failedGeneration) {
+        if (failedGeneration == generation && !suspended) {
+            compact();
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+        channelGeneration = -1;
+        lock = null;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static Path journalPath(String session, int generation) {
+        return RECOVERY_DIRECTORY.resolve(session + "-" + generation + ".journal");
+    }
+
+    private static Path snapshotPath(String session, int generation) {
+        return RECOVERY_DIRECTORY.resolve(session + "-" + generation + ".plnt");
+    }
+
+    private static void deleteGeneration(String session, int generation) {
+        try {
+            Files.deleteIfExists(journalPath(session, generation));
+            Files.deleteIfExists(snapshotPath(session, generation));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the sessions that left a journal behind without being closed, each with its latest generation.
+     */
+    static Map<String, Integer> findUnclean() {
+        HashMap<String, Integer> latest = new HashMap<>();
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(RECOVERY_DIRECTORY, "*.journal")) {
+            for (Path journal : journals) {
+                String name = journal.getFileName().toString();
+                int dash = name.lastIndexOf('-');
+                try {
+                    int generation = Integer.parseInt(name.substring(dash + 1, name.length() - ".journal".length()));
+                    latest.merge(name.substring(0, dash), generation, Math::max);
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    // Not a journal of ours
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return latest;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        latest.entrySet().removeIf(session -> isInUse(journalPath(session.getKey(), session.getValue())));
+        return latest;
+    }
+
+    /**
+     * Returns true if a running window still holds the journal open.
+     */
+    private static boolean isInUse(Path journal) {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        } catch (OverlappingFileLockException e) {
+            return true; // Held by a window in this process
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Rebuilds a plan from the snapshot and journal a session left behind. A frame that
+     * was only partly written when the session stopped is ignored, with everything after it.
+     */
+    static Recovery recover(String session, int generation) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath(session, generation))))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != VERSION || in.readInt() != generation) {
+                throw new IOException("Not a plan journal");
+            }
+            LinkedHashMap<Integer, Room> byId = new LinkedHashMap<>();
+            if (in.readBoolean()) {
+                ArrayList<Room> snapshot = PlanFormat.read(snapshotPath(session, generation));
+                if (in.readInt() != snapshot.size()) {
+                    throw new IOException("Journal does not match its snapshot");
+                }
+                for (Room room : snapshot) {
+                    byId.put(in.readInt(), room);
+                }
+            }
+            ArrayList<AssetRegistry.Asset> assets = new ArrayList<>();
+            String[] planPath = {null};
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] frame;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 0) {
+                        break;
+                    }
+                    frame = in.readNBytes(length);
+                    crc.reset();
+                    crc.update(frame);
+                    if (frame.length != length || (int) crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                replay(new DataInputStream(new ByteArrayInputStream(frame)), byId, assets, planPath);
+            }
+            ArrayList<Room> rooms = new ArrayList<>(byId.values());
+            for (Room room : rooms) {
+                room.linkFurniture();
+            }
+            return new Recovery(session, rooms, planPath[0]);
+        }
+    }
+
+    /**
+     * Applies the records of a frame to a plan held by room id, in plan order.
+     */
+    private static void replay(DataInputStream in, Map<Integer, Room> byId,
+                               List<AssetRegistry.Asset> assets, String[] planPath) throws IOException {
+        while (in.available() > 0) {
+            byte type = in.readByte();
+            if (type == ASSET) {
+                String id = in.readUTF();
+                byte[] png = new byte[in.readInt()];
+                in.readFully(png);
+                assets.add(AssetRegistry.shared().resolve(id, png));
+                continue;
+            }
+            if (type == PLAN_PATH) {
+                boolean saved = in.readBoolean();
+                String path = in.readUTF();
+                planPath[0] = saved ? path : null;
+                continue;
+            }
+
+            int id = in.readInt();
+            if (type == ROOM_ADDED) {
+                byId.put(id, new Room(0, 0, 0, 0, "", ""));
+                continue;
+            }
+            Room room = byId.get(id);
+            if (room == null) {
+                throw new IOException("Journal refers to unknown room " + id);
+            }
+            switch (type) {
+                case ROOM_REMOVED:
+                    byId.remove(id);
+                    break;
+                case ROOM_BOUNDS:
+                    room.x = in.readInt();
+                    room.y = in.readInt();
+                    room.width = in.readInt();
+                    room.height = in.readInt();
+                    break;
+                case ROOM_LOCK:
+                    room.lock = in.readBoolean();
+                    break;
+                case ROOM_LABEL:
+                    room.name = in.readUTF();
+                    room.type = in.readUTF();
+                    break;
+                case ROOM_FIXTURES:
+                    room.clearFixtures();
+                    for (Fixtures fixture : PlanFormat.readFixtures(in)) {
+                        room.addFixture(fixture);
+                    }
+                    break;
+                case ROOM_FURNITURE:
+                    room.furnitureList = PlanFormat.readFurniture(in, assets);
+                    room.furnitureLayoutChanged();
+                    break;
+                default:
+                    throw new IOException("Unknown journal record " + type);
+            }
+        }
+    }
+
+    /**
+     * Deletes every file a session left behind. Runs after any journal work already queued,
+     * so a recovered plan is on disk in its new session before the old one goes.
+     */
+    static void discard(String session) {
+        writer.execute(() -> {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(RECOVERY_DIRECTORY, session + "-*")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+}
@@ -1,40 +1,34 @@
+import java.awt.BorderLayout;
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 public class FileHandler {
     private static final String FILE_EXTENSION = "plnt";
     public static String filePath;
-    public static ArrayList<Room> savedRooms;
+    public static List<Room> savedRooms;
     
+    private static final ExecutorService saver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "plan-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
-     * Saves the rooms ArrayList to a file selected by the user
-     * @param rooms The ArrayList of rooms to save
+     * Saves the rooms to a file selected by the user
+     * @param rooms The rooms to save
      * @return true if save was successful, false otherwise
      */
 
-    public static boolean saving(ArrayList<Room> rooms, String filePath){
+    public static boolean saving(List<Room> rooms, String filePath){
         savedRooms = rooms;
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-            // Write the number of rooms
-            oos.writeInt(rooms.size());
-
-            // Write each room's data
-            for (Room room : rooms) {
-                // Write room properties
-                oos.writeObject(room);
-
-                // Write furniture list if it exists
-                if (room.furnitureList != null || !room.furnitureList.isEmpty()) {
-                    oos.writeInt(room.furnitureList.size());
-                    for (Furniture furniture : room.furnitureList) {
-                        oos.writeObject(furniture);
-                    }
-                } else {
-                    oos.writeInt(0);
-                }
-            }
+        try {
+            PlanFormat.write(rooms, Paths.get(filePath));
             return true;
         } catch (IOException e) {
             e.printStackTrace();
@@ -43,33 +37,89 @@ public class FileHandler {
 
     }
 
-    public static void saveAs(ArrayList<Room> rooms, MainWindow mainWindow) {
+    /**
+     * Saves the rooms on a background thread, so the plan can keep being edited while the
+     * file is written. Only rooms changed since the window last saved to or loaded from the
+     * same file are copied and written. Saves are written one at a time, in the order requested.
+     * Must be called on the EDT.
+     * @param onSaved Run on the EDT once the file is written, or null; on failure an error is shown instead
+     */
+    public static void savingInBackground(List<Room> rooms, String filePath, MainWindow mainWindow, Runnable onSaved) {
+        savedRooms = rooms;
+        Path path = Paths.get(filePath).toAbsolutePath();
+        if (mainWindow.planFile == null || !mainWindow.planFile.path.equals(path)) {
+            mainWindow.planFile = new PlanFile(path);
+        }
+        PlanFile planFile = mainWindow.planFile;
+        PlanFile.Save save = planFile.prepare(rooms, mainWindow.compression);
+        saver.execute(() -> {
+            boolean result;
+            try {
+                planFile.write(save);
+                result = true;
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                result = false;
+            }
+            boolean saved = result;
+            SwingUtilities.invokeLater(() -> {
+                planFile.saveFinished(saved);
+                if (!saved) {
+                    JOptionPane.showMessageDialog(mainWindow, "An error occurred while saving the file.", "Error", JOptionPane.ERROR_MESSAGE);
+                } else if (onSaved != null) {
+                    onSaved.run();
+                }
+            });
+        });
+    }
+
+    public static void saveAs(List<Room> rooms, MainWindow mainWindow) {
+        saveAs(rooms, mainWindow, () -> JOptionPane.showMessageDialog(mainWindow, "File saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE));
+    }
+
+    public static void saveAs(List<Room> rooms, MainWindow mainWindow, Runnable onSaved) {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setFileFilter(new FileNameExtensionFilter("PlanIt Files (*." + FILE_EXTENSION + ")", FILE_EXTENSION));
+        // Kept for later saves of the window; plans are read whichever compression they were saved with
+        JComboBox<PlanFormat.Compression> compressionBox = new JComboBox<>(PlanFormat.Compression.values());
+        compressionBox.setSelectedItem(mainWindow.compression);
+        JPanel accessory = new JPanel(new BorderLayout(0, 4));
+        accessory.add(new JLabel("Compression:"), BorderLayout.NORTH);
+        accessory.add(compressionBox, BorderLayout.CENTER);
+        fileChooser.setAccessory(accessory);
 
         if (fileChooser.showSaveDialog(mainWindow) == JFileChooser.APPROVE_OPTION) {
+            mainWindow.compression = (PlanFormat.Compression) compressionBox.getSelectedItem();
             filePath = fileChooser.getSelectedFile().getAbsolutePath();
             if (!filePath.endsWith("." + FILE_EXTENSION)) {
                 filePath += "." + FILE_EXTENSION;
             }
-            boolean result = saving(rooms,filePath);
-            if (result) {
-                JOptionPane.showMessageDialog(mainWindow, "File saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(mainWindow, "An error occurred while saving the file.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            savingInBackground(rooms, filePath, mainWindow, onSaved);
         }
     }
 
-    public static void save(ArrayList<Room> rooms, MainWindow mainWindow){
+    public static void save(List<Room> rooms, MainWindow mainWindow){
         if(filePath != null){
-            saving(rooms,filePath);
+            savingInBackground(rooms, filePath, mainWindow, null);
         }
         else {
             saveAs(rooms,mainWindow);
         }
     }
 
+    /**
+     * Saves like {@link #save(List, MainWindow)} and runs onSaved on the EDT once the file is written,
+     * e.g. to exit only after the save finished.
+     */
+    public static void save(List<Room> rooms, MainWindow mainWindow, Runnable onSaved){
+        if(filePath != null){
+            savingInBackground(rooms, filePath, mainWindow, onSaved);
+        }
+        else {
+            saveAs(rooms, mainWindow, onSaved);
+        }
+    }
+
     public static int showExitConfirmationDialog(JFrame parentFrame) {
         // Custom message
         String message = "Floor Plan is NOT Saved.\nDo you STILL want to Quit?";
@@ -93,34 +143,7 @@ public class FileHandler {
     public static void loading(JFileChooser fileChooser){
         java.io.File f = fileChooser.getSelectedFile();
         filePath = f.getAbsolutePath();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileChooser.getSelectedFile()))) {
-            int roomCount = ois.readInt();
-            ArrayList<Room> loadedRooms = new ArrayList<>();
-
-            for (int i = 0; i < roomCount; i++) {
-                Room room = (Room) ois.readObject();
-                
-                int furnitureCount = ois.readInt();
-                if (furnitureCount > 0) {
-                    room.furnitureList = new ArrayList<>();
-                    for (int j = 0; j < furnitureCount; j++) {
-                        Furniture furniture = (Furniture) ois.readObject();
-                        room.furnitureList.add(furniture);
-                    }
-                }
-
-                loadedRooms.add(room);
-            }
-            MainWindow mainWindow = new MainWindow();
-            if (loadedRooms != null) {
-                mainWindow.drawingPanel.rooms = loadedRooms;
-                mainWindow.updateRoomTable();
-                mainWindow.drawingPanel.repaint();
-                mainWindow.checkLock();
-            }
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
-        }
+        PlanLoader.open(f.toPath());
     }
 
     /**
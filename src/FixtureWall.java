@@ -0,0 +1,85 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The doors and windows on one wall of a room, ordered by where they start.
+ * Openings on a wall never overlap, so the only one that can overlap a new span
+ * is the last one starting before the span ends, which makes overlap checks and
+ * range lookups O(log n) even on walls with hundreds of openings.
+ */
+public class FixtureWall {
+    private final TreeMap<Integer, Fixtures> byStart = new TreeMap<>();
+    private Fixtures[] ordered; // The openings in order, rebuilt after a change so painting walks an array
+
+    /**
+     * Returns true if an opening on this wall overlaps the span [start, end).
+     * Openings that only touch the span do not overlap it.
+     */
+    public boolean overlaps(int start, int end) {
+        Map.Entry<Integer, Fixtures> before = byStart.lowerEntry(end);
+        return before != null && before.getValue().end > start;
+    }
+
+    /**
+     * Adds an opening, which must not overlap any opening already on the wall.
+     */
+    public void add(Fixtures fixture) {
+        byStart.put(fixture.start, fixture);
+        ordered = null;
+    }
+
+    public void remove(Fixtures fixture) {
+        byStart.remove(fixture.start, fixture);
+        ordered = null;
+    }
+
+    public void clear() {
+        byStart.clear();
+        ordered = null;
+    }
+
+    public int size() {
+        return byStart.size();
+    }
+
+    /**
+     * Returns the openings on this wall in order along it.
+     */
+    public Collection<Fixtures> getFixtures() {
+        return Collections.unmodifiableCollection(byStart.values());
+    }
+
+    /**
+     * Returns the openings on this wall in order along it, without allocating once built.
+     * The array is shared and must not be changed.
+     */
+    Fixtures[] ordered() {
+        if (ordered == null) {
+            ordered = byStart.values().toArray(new Fixtures[0]);
+        }
+        return ordered;
+    }
+
+    /**
+     * Returns the index in {@link #ordered()} of the first opening that ends at or after from.
+     * The openings from there up to the last starting at or before to are the ones that
+     * overlap or touch [from, to].
+     */
+    int firstAt(int from) {
+        Fixtures[] openings = ordered();
+        // The last opening starting at or before from is the only earlier one that can reach it
+        int low = 0;
+        int high = openings.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (openings[mid].start <= from) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && openings[high].end >= from ? high : low;
+    }
+}
@@ -1,15 +1,51 @@
-import java.io.Serializable;
-
-public class Fixtures implements Serializable {
-    int position;
-    String type;
-    int size;
-
-    Fixtures(int position, String type, int size){
-        this.position = position;
-        this.type = type;
-        this.size = size;
-    }
-
-
-}
+import java.io.Serializable;
+
+/**
+ * A door or window on one wall of a room, spanning [start, end) measured along
+ * the wall from its top or left end.
+ */
+public class Fixtures implements Serializable {
+    private static final long serialVersionUID = -5872891293992063409L;
+
+    static final int TOP = 0, RIGHT = 1, BOTTOM = 2, LEFT = 3;
+
+    // Offset around the whole perimeter, clockwise from the top-left corner, and length.
+    // Only set in plans saved before fixtures knew their wall; Room converts them when loading
+    int position;
+    int size;
+    String type;
+    int wall;
+    int start, end;
+
+    Fixtures(int wall, int start, int end, String type) {
+        this.wall = wall;
+        this.start = start;
+        this.end = end;
+        this.type = type;
+    }
+
+    boolean isLegacy() {
+        return end == 0 && size > 0; // Every placed fixture has end > start >= 0
+    }
+
+    /**
+     * Sets the wall, start and end of a fixture read from an older plan from its
+     * offset around the perimeter of a width x height room.
+     */
+    void convertLegacy(int width, int height) {
+        if (position < width) {
+            wall = TOP;
+            start = position;
+        } else if (position < width + height) {
+            wall = RIGHT;
+            start = position - width;
+        } else if (position < 2 * width + height) {
+            wall = BOTTOM;
+            start = position - width - height;
+        } else {
+            wall = LEFT;
+            start = position - 2 * width - height;
+        }
+        end = start + size;
+    }
+}
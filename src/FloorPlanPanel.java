@@ -1,32 +1,114 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import javax.swing.*;
 
-public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotionListener {
+public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotionListener, MouseWheelListener {
     private int mouseX, mouseY;
-    public ArrayList<Room> rooms = new ArrayList<>();
-    private Room selectedRoom = null;
+    // Changed only through addRoom, removeRoom, removeRooms and setRooms, which keep the room index in step
+    private final ArrayList<Room> rooms = new ArrayList<>();
+    private final List<Room> roomsView = Collections.unmodifiableList(rooms);
+    EditJournal journal; // Records edits for recovery after a crash; set by the window showing the panel, if any
+    private Room selectedRoom = null; // The room last clicked; always part of selectedRooms
+    private final LinkedHashSet<Room> selectedRooms = new LinkedHashSet<>(); // Every selected room, in selection order
     private Furniture selectedFurniture = null;
     private Point mouseOffset;
     private Point initialPoint;
     private final int snapDistance = 10;
     private boolean resizing = false;
-    private String resizeDirection = "";
+    private Handle resizeHandle = null;
     private ArrayList<Line2D> projectionLines = new ArrayList<>();
     private JPopupMenu roomMenu, furnitureMenu;
     private MainWindow window;
     private Room roomToPlace = null;
     public static double scale = 2;
     public int totalArea;
+    private Rectangle damage = null; // Area touched by the current edit, flushed by repaintDamage()
+    private BufferedImage staticLayer = null; // Every room except staticLayerRoom, rendered once per interaction
+    private Room staticLayerRoom = null;
+    private int staticLayerWidth, staticLayerHeight;
+    private final Rectangle clipBounds = new Rectangle(); // Reused by paintComponent to avoid allocating per frame
+    private GraphicsConfiguration lastDeviceConfiguration = null;
+    private double lastDeviceScale = 1;
+    private PlanRenderer backgroundRenderer = null; // Renders the plan off the EDT when enabled
+    private int planVersion = 0; // Bumped on every plan or view change
+    private int requestedVersion = -1; // planVersion of the last frame requested from the renderer
+    private Room requestedExcludedRoom = null;
+    private int requestedWidth, requestedHeight;
+    private final SpatialGrid<Room> roomIndex = new SpatialGrid<>(ROOM_INDEX_CELL_SIZE);
+    private final ArrayList<Room> roomQuery = new ArrayList<>(); // Reused for room index query results
+    private final ArrayList<Room> paintQuery = new ArrayList<>(); // Reused by drawPlan
+    private final Comparator<Room> stackingOrder = Comparator.comparingLong(room -> roomIndex.orderOf(room));
+    private static final int ROOM_INDEX_CELL_SIZE = 256; // About the size of a typical room in world units
+    private final SnapEngine roomSnap = new SnapEngine(snapDistance); // Edges of every room, kept in step with roomIndex
+    private final AdjacencyGraph adjacency = new AdjacencyGraph(roomIndex); // Shared walls, kept in step with roomIndex
+    private SnapEngine furnitureSnap = null; // Edges of the furniture and walls around the furniture being dragged
+    private boolean furnitureSnapping = false;
+    private final FrameStats frameStats = new FrameStats();
+    private boolean statsOverlayVisible = false;
+    private long pendingInputWhen = 0; // Timestamp of the oldest input event not yet reflected by a paint
+    private static final Font STATS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color STATS_BACKGROUND = new Color(0, 0, 0, 170);
+
+    // View transform: screen = world * zoom + pan. Rooms live in unbounded world coordinates.
+    private double zoom = 1;
+    private double panX = 0, panY = 0;
+    private Point panStart = null; // Screen point of the last pan drag event, null when not panning
+    private static final double MIN_ZOOM = 0.05;
+    private static final double MAX_ZOOM = 8;
+    private static final double ZOOM_STEP = 1.1; // Zoom factor per wheel notch
+    private static final Stroke PROJECTION_STROKE = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{5}, 0);
+
+    // Rubber-band selection, in world coordinates; marquee is null when no rectangle is being dragged
+    private Rectangle marquee = null;
+    private Point marqueeStart;
+    private final HashSet<Room> marqueeBase = new HashSet<>(); // Rooms selected before the rectangle, kept with shift
+    private final HashSet<Room> marqueeHits = new HashSet<>();
+    private final ArrayList<Room> marqueeQuery = new ArrayList<>();
+    private static final Color MARQUEE_FILL = new Color(41, 128, 185, 40);
+    private static final Color MARQUEE_BORDER = new Color(41, 128, 185);
+
+    // Group drag: the selected rooms at their positions when the drag started, and how far they have moved since
+    private SpatialGrid<Room> groupIndex = null;
+    private Rectangle groupBounds;
+    private Point groupDragStart;
+    private final Point groupOffset = new Point();
+    private final ArrayList<Room> groupQuery = new ArrayList<>();
 
     public FloorPlanPanel(MainWindow window) {
         addMouseListener(this);
         addMouseMotionListener(this);
+        addMouseWheelListener(this);
         this.window = window;
         setLayout(null); // Use absolute positioning
+
+        // F3 toggles the frame statistics overlay, Shift+F3 exports the statistics
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "toggleStats");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, InputEvent.SHIFT_DOWN_MASK), "exportStats");
+        getActionMap().put("toggleStats", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setStatsOverlayVisible(!statsOverlayVisible);
+            }
+        });
+        getActionMap().put("exportStats", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportFrameStats();
+            }
+        });
     }
 
     private void initializeRoomMenu() {
@@ -36,31 +118,33 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         JMenuItem deleteItem = new JMenuItem("Delete");
         deleteItem.addActionListener(e -> {
             if (selectedRoom != null) {
-                rooms.remove(selectedRoom);
-                selectedRoom = null;
-                repaint();
+                removeRooms(new ArrayList<>(selectedRooms));
+                planChanged();
                 window.updateRoomTable();
                 updateTotalArea();
                 window.updateTotalAreaLabel();
             } else if(selectedFurniture != null){
-                selectedRoom.furnitureList.remove(selectedFurniture);
+                selectedRoom.removeFurniture(selectedFurniture);
             }
         });
 
         // Duplicate
         JMenuItem duplicateItem = new JMenuItem("Duplicate");
         duplicateItem.addActionListener(e -> {
-            if (selectedRoom != null) {
+            if (selectedRooms.size() > 1) {
+                duplicateSelection();
+            } else if (selectedRoom != null) {
                 ArrayList<Furniture> furnitureListCopy = new ArrayList<>();
                 for (Furniture furniture : selectedRoom.getFurnitureList()) {
-                    Furniture newFurniture = new Furniture(furniture.getName(), furniture.getX() - selectedRoom.x, furniture.getY() - selectedRoom.y, new ImageIcon(furniture.getImage()));
-                    newFurniture.setWidth(furniture.getWidth());
-                    newFurniture.setHeight(furniture.getHeight());
+                    Furniture newFurniture = new Furniture(furniture);
+                    newFurniture.setX(furniture.getX() - selectedRoom.x);
+                    newFurniture.setY(furniture.getY() - selectedRoom.y);
+                    newFurniture.setSelected(false);
                     furnitureListCopy.add(newFurniture);
                 }
                 window.addNewRoom(selectedRoom.name,selectedRoom.type, selectedRoom.width, selectedRoom.height, furnitureListCopy);
-                selectedRoom = null;
-                repaint();
+                clearAllSelections();
+                planChanged();
                 window.updateRoomTable();
             }
         });
@@ -99,10 +183,19 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         clearFixtures.addActionListener(e -> {
             if (selectedRoom != null) {
                 selectedRoom.clearFixtures();
-                repaint();
+                planChanged();
             }
         });
 
+        // Lock or unlock every selected room
+        boolean allLocked = true;
+        for (Room room : selectedRooms) {
+            allLocked &= room.lock;
+        }
+        JMenuItem lockItem = new JMenuItem(allLocked ? "Unlock" : "Lock");
+        boolean unlock = allLocked;
+        lockItem.addActionListener(e -> setSelectionLocked(!unlock));
+
         // Rotate options
         JMenu rotateMenu = new JMenu("Rotate");
 
@@ -110,7 +203,7 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         rotate90.addActionListener(e -> {
             if (selectedRoom != null) {
                 rotateRoom(selectedRoom, 90);
-                repaint();
+                planChanged();
             }
         });
 
@@ -118,7 +211,7 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         rotate270.addActionListener(e -> {
             if (selectedRoom != null) {
                 rotateRoom(selectedRoom, 270);
-                repaint();
+                planChanged();
             }
         });
 
@@ -130,12 +223,14 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         roomMenu.add(addDoor);
         roomMenu.add(addWindow);
         roomMenu.add(clearFixtures);
+        roomMenu.add(lockItem);
         roomMenu.add(deleteItem);
         if(window.globalLock){
             addFurniture.setEnabled(false);
             addDoor.setEnabled(true);
             addWindow.setEnabled(true);
             clearFixtures.setEnabled(true);
+            lockItem.setEnabled(false);
             deleteItem.setEnabled(false);
             duplicateItem.setEnabled(false);
             rotateMenu.setEnabled(false);
@@ -144,6 +239,7 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
             addDoor.setEnabled(false);
             addWindow.setEnabled(false);
             clearFixtures.setEnabled(true);
+            lockItem.setEnabled(true);
             deleteItem.setEnabled(true);
             duplicateItem.setEnabled(true);
             rotateMenu.setEnabled(true);
@@ -156,9 +252,9 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         JMenuItem deleteItem = new JMenuItem("Delete");
         deleteItem.addActionListener(e -> {
             if (selectedFurniture != null) {
-                selectedRoom.furnitureList.remove(selectedFurniture);
+                findRoomContainingFurniture(selectedFurniture).removeFurniture(selectedFurniture);
                 selectedFurniture = null;
-                repaint();
+                planChanged();
             }
         });
 
@@ -166,7 +262,8 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         rotate90.addActionListener(e -> {
             if (selectedFurniture != null) {
                 selectedFurniture.rotateFurniture(90);
-                repaint();
+                findRoomContainingFurniture(selectedFurniture).furnitureChanged(selectedFurniture);
+                planChanged();
             }
         });
 
@@ -174,7 +271,8 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         rotate270.addActionListener(e -> {
             if (selectedFurniture != null) {
                 selectedFurniture.rotateFurniture(270);
-                repaint();
+                findRoomContainingFurniture(selectedFurniture).furnitureChanged(selectedFurniture);
+                planChanged();
             }
         });
 
@@ -192,6 +290,71 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         }
     }
 
+    /**
+     * Copies every selected room with its furniture, keeping their layout, at the free
+     * spot nearest to the group, and selects the copies.
+     */
+    private void duplicateSelection() {
+        Rectangle bounds = null;
+        for (Room room : selectedRooms) {
+            if (bounds == null) {
+                bounds = new Rectangle(room.x, room.y, room.width, room.height);
+            } else {
+                bounds.add(new Rectangle(room.x, room.y, room.width, room.height));
+            }
+        }
+        Point free = new PlacementSolver(roomIndex).findNearestFree(null, bounds.x, bounds.y, bounds.width, bounds.height);
+        int offsetX = free.x - bounds.x;
+        int offsetY = free.y - bounds.y;
+
+        ArrayList<Room> copies = new ArrayList<>();
+        for (Room room : selectedRooms) {
+            Room copy = new Room(room.x + offsetX, room.y + offsetY, room.width, room.height, room.name, room.type);
+            for (Furniture furniture : room.getFurnitureList()) {
+                Furniture newFurniture = new Furniture(furniture);
+                newFurniture.setX(furniture.getX() + offsetX);
+                newFurniture.setY(furniture.getY() + offsetY);
+                newFurniture.setSelected(false);
+                copy.addFurniture(newFurniture);
+            }
+            copies.add(copy);
+        }
+        clearAllSelections();
+        for (Room copy : copies) {
+            addRoom(copy);
+            selectRoom(copy);
+        }
+        planChanged();
+        window.updateRoomTable();
+        updateTotalArea();
+        window.updateTotalAreaLabel();
+    }
+
+    /**
+     * Locks or unlocks every selected room. Unlocking deletes the rooms' fixtures, so it asks first.
+     */
+    private void setSelectionLocked(boolean locked) {
+        if (!locked) {
+            for (Room room : selectedRooms) {
+                if (!room.doesNotHaveFixtures()) {
+                    int option = JOptionPane.showConfirmDialog(this, "Unlocking will delete all fixtures in the selected rooms. Do you want to continue?", "Warning", JOptionPane.YES_NO_OPTION);
+                    if (option != JOptionPane.YES_OPTION) {
+                        return;
+                    }
+                    break;
+                }
+            }
+        }
+        for (Room room : selectedRooms) {
+            if (locked) {
+                room.lockRoom();
+            } else {
+                room.unlockRoom();
+            }
+        }
+        planChanged();
+    }
+
     private void rotateRoom(Room room, int degrees) {
         if (room.lock) {
             JOptionPane.showMessageDialog(null, "Room must be unlocked to rotate.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -213,21 +376,13 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         room.x = centerX - room.width / 2;
         room.y = centerY - room.height / 2;
 
-        // check overlap and revert if any
-        if (!resolveOverlap(room)) {
-            room.width = originalWidth;
-            room.height = originalHeight;
-            room.x = centerX - room.width / 2;
-            room.y = centerY - room.height / 2;
-            JOptionPane.showMessageDialog(null, "Room cannot be rotated due to overlap.", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
-        // Ensure room stays within bounds
-        constrainRoomToBounds(room);
+        // Move the rotated room clear of any room it now overlaps
+        resolveOverlap(room);
+        roomChanged(room);
 
         // Rotate the furniture within the room
         rotateFurniture(room, degrees);
+        room.furnitureLayoutChanged();
     }
 
     private void rotateFurniture(Room room, int degrees) {
@@ -251,9 +406,8 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
             furniture.setX(rotatedX - furniture.getWidth() / 2);
             furniture.setY(rotatedY - furniture.getHeight() / 2);
             if (degrees == 90 || degrees == 270) {
-                int temp = furniture.getWidth();
-                furniture.setWidth(furniture.getHeight());
-                furniture.setHeight(temp);
+                // Turns the furniture image along with its footprint
+                furniture.rotateFurniture(degrees);
             }
 
             // Ensure furniture stays within room bounds
@@ -267,65 +421,13 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         }
     }
 
-    private boolean resolveOverlap(Room room) {
-        int maxAttempts = 50; // Prevent infinite loops
-        int attempts = 0;
-        int pushDistance = 10; // Initial push distance in pixels
-
-        while (attempts < maxAttempts) {
-            boolean hasOverlap = false;
-
-            for (Room otherRoom : rooms) {
-                if (otherRoom == room) continue;
-
-                Rectangle roomBounds = new Rectangle(room.x, room.y, room.width, room.height);
-                Rectangle otherBounds = new Rectangle(otherRoom.x, otherRoom.y, otherRoom.width, otherRoom.height);
-
-                if (roomBounds.intersects(otherBounds)) {
-                    hasOverlap = true;
-
-                    // Calculate overlap areas in different directions
-                    int leftPush = (otherRoom.x + otherRoom.width) - room.x;
-                    int rightPush = (room.x + room.width) - otherRoom.x;
-                    int upPush = (otherRoom.y + otherRoom.height) - room.y;
-                    int downPush = (room.y + room.height) - otherRoom.y;
-
-                    // Find the smallest push needed
-                    int minPush = Math.min(Math.min(leftPush, rightPush), Math.min(upPush, downPush));
-
-                    // Apply the push in the appropriate direction
-                    if (minPush == leftPush) {
-                        room.x += pushDistance;
-                    } else if (minPush == rightPush) {
-                        room.x -= pushDistance;
-                    } else if (minPush == upPush) {
-                        room.y += pushDistance;
-                    } else if (minPush == downPush) {
-                        room.y -= pushDistance;
-                    }
-
-                    // Ensure room stays within panel bounds
-                    constrainRoomToBounds(room);
-                }
-            }
-
-            if (!hasOverlap) {
-                return true; // Successfully resolved all overlaps
-            }
-
-            attempts++;
-            // Increase push distance slightly with each attempt
-            if (attempts % 5 == 0) {
-                pushDistance += 5;
-            }
-        }
-
-        return false; // Could not resolve overlaps within max attempts
-    }
-
-    private void constrainRoomToBounds(Room room) {
-        room.x = Math.max(0, Math.min(room.x, getWidth() - room.width));
-        room.y = Math.max(0, Math.min(room.y, getHeight() - room.height));
+    /**
+     * Moves the room to the nearest position where it overlaps no other room.
+     */
+    private void resolveOverlap(Room room) {
+        Point free = new PlacementSolver(roomIndex).findNearestFree(room, room.x, room.y, room.width, room.height);
+        room.x = free.x;
+        room.y = free.y;
     }
 
     // methods to handle fixtures:
@@ -437,21 +539,6 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         };
     }
 
-    private int getWallPosition(int wall, int position, Room room) {
-        switch (wall) {
-            case 0: // Top wall
-                return position;
-            case 1: // Right wall
-                return room.width + position;
-            case 2: // Bottom wall
-                return room.width + room.height + position;
-            case 3: // Left wall
-                return 2 * room.width + room.height + position;
-            default:
-                return -1;
-        }
-    }
-
     public void addDoor(Room selectedRoom){
         if(!selectedRoom.lock) {
             JOptionPane.showMessageDialog(null, "Room must be locked to add a door.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -461,16 +548,15 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         if (result != null) {
             int wall = result[0];
             int position = result[1];
-            int wallPosition = getWallPosition(wall, position, selectedRoom);
             int size = result[2];
             if(selectedRoom.type.equals("Bedroom") || selectedRoom.type.equals("Bathroom")){
-                if(isFixtureFacingOut(selectedRoom, wall, position , size)) {
+                if(!isFixtureFacingIn(selectedRoom, wall, position, size)) {
                     JOptionPane.showMessageDialog(null, "Doors cannot face outwards for bedrooms and bathrooms", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
             }
-            selectedRoom.addDoor(wallPosition,size);
-            repaint();
+            selectedRoom.addDoor(wall, position, position + size);
+            planChanged();
         }
     }
 
@@ -483,64 +569,34 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         if (result != null) {
             int wall = result[0];
             int position = result[1];
-            int wallPosition = getWallPosition(wall, position, selectedRoom);
             int size = result[2];
-            if(!isFixtureFacingOut(selectedRoom, wall, position , size)){
+            if(!isFixtureFacingOut(selectedRoom, wall, position, size)){
                 JOptionPane.showMessageDialog(null, "Window must face outwards.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            selectedRoom.addWindow(wallPosition,size);
-            repaint();
+            selectedRoom.addWindow(wall, position, position + size);
+            planChanged();
         }
     }
 
-    public boolean isFixtureFacingOut(Room room, int wallPosition, int position , int size) {
-        // find the point just in front of window outside the room
-        int x = room.x;
-        int y = room.y;
-        int x1,y1;
-        switch (wallPosition) {
-            case 0: //Top
-                x += position;
-                y -= 1;
-                x1 = x+size;
-                y1 = y;
-                break;
-            case 1: //Right
-                x += room.width + 1;
-                y += position;
-                x1 = x;
-                y1 = y + size;
-                break;
-            case 2: //Bottom
-                x += position;
-                y += room.height + 1;
-                x1 = x - size;
-                y1 = y;
-                break;
-            case 3: //Left
-                x -= 1;
-                y += position;
-                x1 = x;
-                y1 = y - size;
-                break;
-            default:
-                x1 = x;
-                y1 = y;
-        }
-
-
-
-        // check if the point is inside another room
-        if(findRoomContainingPoint(x, y) != null || findRoomContainingPoint(x1,y1) != null) return false;
+    /**
+     * Returns true if no part of the given span of a wall is shared with another room.
+     */
+    public boolean isFixtureFacingOut(Room room, int wall, int position, int size) {
+        return getAdjacency().isExterior(room, wall, position, position + size);
+    }
 
-        return true;
+    /**
+     * Returns true if all of the given span of a wall is shared with other rooms.
+     */
+    public boolean isFixtureFacingIn(Room room, int wall, int position, int size) {
+        return getAdjacency().isShared(room, wall, position, position + size);
     }
 
     // add furniture to room
     public void addFurnitureToRoom(Room room, Furniture furniture) {
         room.addFurniture(furniture);
-        repaint();
+        planChanged();
     }
 
     private void clearAllSelections() {
@@ -549,45 +605,62 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
             room.selected = false;
             // Clear furniture selections within each room
             for (Furniture furniture : room.getFurnitureList()) {
-                furniture.setSelected(false);
+                if (furniture.isSelected()) {
+                    furniture.setSelected(false);
+                    room.invalidateSprite();
+                    planVersion++;
+                }
             }
         }
         selectedRoom = null;
+        selectedRooms.clear();
         selectedFurniture = null;
+        furnitureSnap = null;
     }
 
-    private Room findRoomContainingPoint(int x, int y) {
-        // Check rooms in reverse order (top-most first)
-        for (int i = rooms.size() - 1; i >= 0; i--) {
-            Room room = rooms.get(i);
-            if(room.containsHandle(x,y)){
-                return room;
-            }
-            if (room.contains(x, y)) {
-                return room;
-            }
+    /**
+     * Adds a room to the selection and makes it the room the single-room actions apply to.
+     */
+    private void selectRoom(Room room) {
+        selectedRoom = room;
+        room.selected = true;
+        selectedRooms.add(room);
+    }
+
+    private void deselectRoom(Room room) {
+        room.selected = false;
+        selectedRooms.remove(room);
+        if (selectedRoom == room) {
+            selectedRoom = selectedRooms.isEmpty() ? null : selectedRooms.iterator().next();
         }
-        return null;
+    }
+
+    /**
+     * Returns every selected room, in the order they were selected.
+     */
+    public Collection<Room> getSelectedRooms() {
+        return Collections.unmodifiableSet(selectedRooms);
+    }
+
+    Room findRoomContainingPoint(int x, int y) {
+        // Top-most room whose outline or handles contain the point; handles reach PAINT_MARGIN past the outline
+        return roomIndex.queryTopmost(x, y, Room.PAINT_MARGIN, room -> room.containsHandle(x, y) || room.contains(x, y));
     }
 
     private Furniture findFurnitureAtPoint(int x, int y) {
-        for (Room room : rooms) {
-            for (Furniture furniture : room.getFurnitureList()) {
-                if(furniture.containsHandle(x,y)){
-                    return furniture;
-                }
-                if (x >= furniture.getX() && x <= furniture.getX() + furniture.getWidth() &&
-                    y >= furniture.getY() && y <= furniture.getY() + furniture.getHeight()) {
-                    return furniture;
-                }
-            }
-        }
-        return null;
+        // Furniture stays inside its room, but its handles reach up to HANDLE_REACH past the walls
+        Room room = roomIndex.queryTopmost(x, y, Furniture.HANDLE_REACH, candidate -> candidate.findFurnitureAt(x, y) != null);
+        return room == null ? null : room.findFurnitureAt(x, y);
     }
 
     private Room findRoomContainingFurniture(Furniture furniture) {
+        if (furniture.getRoom() != null) {
+            return furniture.getRoom();
+        }
+        // Furniture put straight into a room's list has no back-reference until the room links it
         for (Room room : rooms) {
             if (room.getFurnitureList().contains(furniture)) {
+                room.linkFurniture();
                 return room;
             }
         }
@@ -596,24 +669,33 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
 
     @Override
     public void mousePressed(MouseEvent e) {
-        mouseX = e.getX();
-        mouseY = e.getY();
+        noteInput(e);
+        mouseX = toWorldX(e.getX());
+        mouseY = toWorldY(e.getY());
 
-        if (roomToPlace != null) {
-            roomToPlace.x = e.getX();
-            roomToPlace.y = e.getY();
+        if (SwingUtilities.isMiddleMouseButton(e)) {
+            panStart = e.getPoint();
+            return;
+        }
 
-            if (isOverlapping(roomToPlace)) {
-                JOptionPane.showMessageDialog(this, "Room overlaps with an existing room!", "Error", JOptionPane.ERROR_MESSAGE);
-            } else {
-                rooms.add(roomToPlace);
-                roomToPlace = null; // Placement done
-                repaint();
-                window.updateRoomTable();
-                updateTotalArea();
-                window.updateTotalAreaLabel();
-                window.addRoom.setVisible(false);
+        if (roomToPlace != null) {
+            // Drop the room at the free spot nearest to the click
+            Point free = new PlacementSolver(roomIndex).findNearestFree(null, mouseX, mouseY, roomToPlace.width, roomToPlace.height);
+            // Furniture of a duplicated room is laid out relative to the room and moves with it
+            for (Furniture furniture : roomToPlace.getFurnitureList()) {
+                furniture.setX(furniture.getX() + free.x - roomToPlace.x);
+                furniture.setY(furniture.getY() + free.y - roomToPlace.y);
             }
+            roomToPlace.x = free.x;
+            roomToPlace.y = free.y;
+
+            addRoom(roomToPlace);
+            roomToPlace = null; // Placement done
+            planChanged();
+            window.updateRoomTable();
+            updateTotalArea();
+            window.updateTotalAreaLabel();
+            window.addRoom.setVisible(false);
         }
         else {
             if (e.isPopupTrigger()) {
@@ -625,6 +707,38 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
             Furniture clickedFurniture = findFurnitureAtPoint(mouseX, mouseY);
             Room clickedRoom = findRoomContainingPoint(mouseX, mouseY);
 
+            if (clickedFurniture == null && clickedRoom == null) {
+                // Dragging on empty space draws a selection rectangle; with shift it adds to the selection
+                if (!e.isShiftDown()) {
+                    clearAllSelections();
+                }
+                if (SwingUtilities.isLeftMouseButton(e)) {
+                    startMarquee();
+                }
+                planVersion++;
+                repaint();
+                return;
+            }
+            if (clickedFurniture == null && e.isShiftDown()) {
+                // Shift-click adds the room to the selection or takes it out again
+                if (selectedFurniture != null) {
+                    clearAllSelections();
+                }
+                if (selectedRooms.contains(clickedRoom)) {
+                    deselectRoom(clickedRoom);
+                } else {
+                    selectRoom(clickedRoom);
+                }
+                planVersion++;
+                repaint();
+                return;
+            }
+            if (clickedFurniture == null && selectedRooms.size() > 1 && selectedRooms.contains(clickedRoom)) {
+                // Dragging any room of a multi-selection moves the whole group
+                startGroupDrag(clickedRoom);
+                return;
+            }
+
             // Clear all current selections first
             clearAllSelections();
 
@@ -636,8 +750,8 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
                 // Check if clicking on a resize handle
                 if (clickedFurniture.containsHandle(mouseX, mouseY)) {
                     resizing = true;
-                    initialPoint = e.getPoint();
-                    resizeDirection = clickedFurniture.getResizeDirection(mouseX, mouseY);
+                    initialPoint = new Point(mouseX, mouseY);
+                    resizeHandle = clickedFurniture.getHandleAt(mouseX, mouseY);
                 } else {
                     // Normal selection for moving
                     mouseOffset = new Point(mouseX - clickedFurniture.getX(),
@@ -647,24 +761,25 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
                 // Also select the containing room
                 Room containingRoom = findRoomContainingFurniture(clickedFurniture);
                 if (containingRoom != null) {
-                    selectedRoom = containingRoom;
-                    containingRoom.selected = true;
+                    selectRoom(containingRoom);
                 }
-            } else if (clickedRoom != null) {
+            } else {
                 // Handle room selection and resize handles
                 if (clickedRoom.containsHandle(mouseX, mouseY) && !clickedRoom.lock) {
                     resizing = true;
-                    selectedRoom = clickedRoom;
-                    clickedRoom.selected = true;
-                    initialPoint = e.getPoint();
-                    resizeDirection = getResizeDirection(clickedRoom, mouseX, mouseY);
+                    selectRoom(clickedRoom);
+                    initialPoint = new Point(mouseX, mouseY);
+                    resizeHandle = clickedRoom.getHandleAt(mouseX, mouseY);
                 } else if (!clickedRoom.lock) {
-                    selectedRoom = clickedRoom;
-                    clickedRoom.selected = true;
+                    selectRoom(clickedRoom);
                     mouseOffset = new Point(mouseX - clickedRoom.x, mouseY - clickedRoom.y);
                 }
             }
 
+            // Everything except the room being edited stays still until the mouse is released
+            if (selectedRoom != null) {
+                buildStaticLayer(selectedRoom);
+            }
             repaint();
 
         }
@@ -678,26 +793,55 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
 
     @Override
     public void mouseReleased(MouseEvent e) {
+        noteInput(e);
+        if (panStart != null) {
+            panStart = null;
+            return;
+        }
+        if (marquee != null) {
+            addMarqueeDamage();
+            marquee = null;
+            marqueeBase.clear();
+            marqueeHits.clear();
+            repaintDamage();
+            return;
+        }
+        groupIndex = null;
+        // Drags move rooms and furniture without a planChanged
+        for (Room room : selectedRooms) {
+            journalChanged(room);
+        }
+        if (selectedFurniture != null && selectedFurniture.getRoom() != null) {
+            journalChanged(selectedFurniture.getRoom());
+        }
         if (e.isPopupTrigger()) {
             handleRoomMenu(e);
+            repaint();
         } else {
             resizing = false;
+            furnitureSnap = null;
+            invalidateStaticLayer();
+            addSelectionDamage();
+            addProjectionDamage(projectionLines);
             projectionLines.clear();
+            repaintDamage();
         }
-        repaint();
     }
 
     private void handleRoomMenu(MouseEvent e) {
-        Furniture clickedFurniture = findFurnitureAtPoint(e.getX(), e.getY());
+        Furniture clickedFurniture = findFurnitureAtPoint(toWorldX(e.getX()), toWorldY(e.getY()));
         if (clickedFurniture != null) {
             handleFurnitureMenu(selectedFurniture, e);
             return;
         }
-        Room clickedRoom = findRoomContainingPoint(e.getX(), e.getY());
+        Room clickedRoom = findRoomContainingPoint(toWorldX(e.getX()), toWorldY(e.getY()));
         if (clickedRoom != null) {
-            clearAllSelections();
-            selectedRoom = clickedRoom;
-            clickedRoom.selected = true;
+            // Right-clicking a room of a multi-selection acts on the whole group
+            if (!selectedRooms.contains(clickedRoom) || selectedFurniture != null) {
+                clearAllSelections();
+            }
+            selectRoom(clickedRoom);
+            planVersion++;
             repaint();
             initializeRoomMenu();
             roomMenu.show(this, e.getX(), e.getY());
@@ -706,66 +850,491 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
 
     private void handleFurnitureMenu(Furniture clickedFurniture, MouseEvent e) {
         clickedFurniture.setSelected(true);
+        findRoomContainingFurniture(clickedFurniture).invalidateSprite();
+        planVersion++;
         initializeFurnitureMenu();
         furnitureMenu.show(this, e.getX(), e.getY());
     }
 
     @Override
     protected void paintComponent(Graphics g) {
+        long paintStart = System.nanoTime();
+        frameStats.resetFrameCounts();
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
+        if (backgroundRenderer != null) {
+            paintFromBackgroundRenderer(g2d);
+        } else {
+            paintPlan(g2d);
+        }
+        if (statsOverlayVisible) {
+            drawStatsOverlay(g2d);
+        }
 
-        for (Room room : rooms) {
-            room.drawRooms(g2d);
+        frameStats.paintTime.recordNanos(System.nanoTime() - paintStart);
+        if (pendingInputWhen != 0) {
+            frameStats.inputLatency.recordMicros((System.currentTimeMillis() - pendingInputWhen) * 1000);
+            pendingInputWhen = 0;
         }
+    }
+
+    private void paintPlan(Graphics2D g2d) {
+        double deviceScale = getDeviceScale(g2d) * zoom;
+
+        if (staticLayer != null && (staticLayerWidth != getWidth() || staticLayerHeight != getHeight())) {
+            invalidateStaticLayer();
+        }
+        if (staticLayer != null) {
+            // Interactive edit: the cached plan is already in screen space
+            g2d.drawImage(staticLayer, 0, 0, getWidth(), getHeight(), null);
+        }
+
+        // Switch to world coordinates; the clip then covers only the visible part of the world
+        g2d.translate(panX, panY);
+        g2d.scale(zoom, zoom);
+        // getClipBounds(Rectangle) leaves the rectangle untouched when there is no clip
+        getVisibleWorldBounds(clipBounds);
+        Rectangle clip = g2d.getClipBounds(clipBounds);
+
+        if (staticLayer != null) {
+            // Draw only the room being edited on top of the cached layer
+            if (staticLayerRoom.intersectsPaintArea(clip)) {
+                staticLayerRoom.drawRooms(g2d, deviceScale, clip);
+                staticLayerRoom.drawFixtures(g2d, clip, deviceScale);
+                countRoom(staticLayerRoom, true, deviceScale);
+            }
+        } else {
+            drawPlan(g2d, clip, null, deviceScale);
+        }
+
+        drawProjectionLines(g2d);
+        drawMarquee(g2d);
+
+        g2d.scale(1 / zoom, 1 / zoom);
+        g2d.translate(-panX, -panY);
+    }
 
-        for (Room room : rooms){
-            room.drawFixtures(g2d);
+    /**
+     * Paints the last frame produced by the background renderer and draws only the
+     * selected room live on top of it, so the EDT never rasterises the whole plan.
+     */
+    private void paintFromBackgroundRenderer(Graphics2D g2d) {
+        // The selected room may be dragged every frame, so it is always left out of rendered frames
+        if (requestedVersion != planVersion || requestedExcludedRoom != selectedRoom
+                || requestedWidth != getWidth() || requestedHeight != getHeight()) {
+            requestedVersion = planVersion;
+            requestedExcludedRoom = selectedRoom;
+            requestedWidth = getWidth();
+            requestedHeight = getHeight();
+            backgroundRenderer.request(PlanRenderer.snapshot(rooms, selectedRoom, getVisibleWorldBounds(new Rectangle())),
+                    selectedRoom, getWidth(), getHeight(), zoom, panX, panY,
+                    getDeviceScale(g2d), g2d.getDeviceConfiguration());
         }
+        Room frameExcludedRoom = backgroundRenderer.drawFrame(g2d, zoom, panX, panY);
+
+        double deviceScale = getDeviceScale(g2d) * zoom;
+        g2d.translate(panX, panY);
+        g2d.scale(zoom, zoom);
+        getVisibleWorldBounds(clipBounds);
+        Rectangle clip = g2d.getClipBounds(clipBounds);
+
+        // Until the next frame arrives, a room the shown frame left out is still drawn live
+        if (frameExcludedRoom != null && frameExcludedRoom != selectedRoom && frameExcludedRoom.intersectsPaintArea(clip)) {
+            frameExcludedRoom.drawRooms(g2d, deviceScale, clip);
+            frameExcludedRoom.drawFixtures(g2d, clip, deviceScale);
+            countRoom(frameExcludedRoom, true, deviceScale);
+        }
+        if (selectedRoom != null && selectedRoom.intersectsPaintArea(clip)) {
+            selectedRoom.drawRooms(g2d, deviceScale, clip);
+            selectedRoom.drawFixtures(g2d, clip, deviceScale);
+            countRoom(selectedRoom, true, deviceScale);
+        }
+        drawProjectionLines(g2d);
+        drawMarquee(g2d);
+
+        g2d.scale(1 / zoom, 1 / zoom);
+        g2d.translate(-panX, -panY);
+    }
+
+    /**
+     * Adds a room and its contents to the drawn or culled counts of the current frame.
+     * Furniture and fixtures count as culled when the room is drawn below full detail.
+     */
+    private void countRoom(Room room, boolean drawn, double deviceScale) {
+        int furniture = room.getFurnitureList().size();
+        int fixtures = room.getFixtureList().size();
+        if (drawn) {
+            frameStats.roomsDrawn++;
+        } else {
+            frameStats.roomsCulled++;
+        }
+        if (drawn && room.getDetail(deviceScale) == Room.Detail.FULL) {
+            frameStats.furnitureDrawn += furniture;
+            frameStats.fixturesDrawn += fixtures;
+        } else {
+            frameStats.furnitureCulled += furniture;
+            frameStats.fixturesCulled += fixtures;
+        }
+    }
+
+    /**
+     * Draws the frame statistics in the top-left corner of the panel, in screen coordinates.
+     */
+    private void drawStatsOverlay(Graphics2D g2d) {
+        FrameStats.Histogram paint = frameStats.paintTime;
+        FrameStats.Histogram latency = frameStats.inputLatency;
+        String[] lines = {
+                String.format("paint   p50 %6.2f  p95 %6.2f  p99 %6.2f ms", paint.getPercentileMillis(50), paint.getPercentileMillis(95), paint.getPercentileMillis(99)),
+                String.format("input   p50 %6.2f  p95 %6.2f  p99 %6.2f ms", latency.getPercentileMillis(50), latency.getPercentileMillis(95), latency.getPercentileMillis(99)),
+                String.format("rooms     %6d drawn %6d culled", frameStats.roomsDrawn, frameStats.roomsCulled),
+                String.format("furniture %6d drawn %6d culled", frameStats.furnitureDrawn, frameStats.furnitureCulled),
+                String.format("fixtures  %6d drawn %6d culled", frameStats.fixturesDrawn, frameStats.fixturesCulled)
+        };
+        g2d.setFont(STATS_FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        int lineHeight = fm.getHeight();
+        int boxWidth = 0;
+        for (String line : lines) {
+            boxWidth = Math.max(boxWidth, fm.stringWidth(line));
+        }
+        g2d.setColor(STATS_BACKGROUND);
+        g2d.fillRect(5, 5, boxWidth + 10, lineHeight * lines.length + 10);
+        g2d.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++) {
+            g2d.drawString(lines[i], 10, 10 + fm.getAscent() + i * lineHeight);
+        }
+    }
+
+    private void noteInput(InputEvent e) {
+        if (pendingInputWhen == 0) {
+            pendingInputWhen = e.getWhen();
+        }
+    }
+
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    public boolean isStatsOverlayVisible() {
+        return statsOverlayVisible;
+    }
+
+    /**
+     * Shows or hides the frame statistics overlay. Statistics are recorded either way.
+     */
+    public void setStatsOverlayVisible(boolean visible) {
+        statsOverlayVisible = visible;
+        repaint();
+    }
+
+    private void exportFrameStats() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export Frame Statistics");
+        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            String path = fileChooser.getSelectedFile().getAbsolutePath();
+            if (!path.toLowerCase().endsWith(".csv")) {
+                path += ".csv";
+            }
+            try {
+                frameStats.exportCsv(path);
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "An error occurred while exporting the statistics.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private void drawMarquee(Graphics2D g2d) {
+        if (marquee != null) {
+            g2d.setColor(MARQUEE_FILL);
+            g2d.fill(marquee);
+            g2d.setColor(MARQUEE_BORDER);
+            g2d.setStroke(PROJECTION_STROKE);
+            g2d.draw(marquee);
+        }
+    }
 
-        // Draw projection lines
+    private void drawProjectionLines(Graphics2D g2d) {
         g2d.setColor(Color.BLUE);
-        g2d.setStroke(new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{5}, 0));
-        for (Line2D line : projectionLines) {
-            g2d.draw(line);
+        g2d.setStroke(PROJECTION_STROKE);
+        for (int i = 0; i < projectionLines.size(); i++) {
+            g2d.draw(projectionLines.get(i));
         }
     }
 
+    /**
+     * Turns rendering of the plan on a background thread on or off. Worth enabling
+     * for plans too large to redraw within a frame; edits then appear once the
+     * next frame has rendered, while the selected room always updates immediately.
+     */
+    public void setBackgroundRendering(boolean enabled) {
+        if (enabled == (backgroundRenderer != null)) {
+            return;
+        }
+        if (enabled) {
+            backgroundRenderer = new PlanRenderer(this::repaint);
+        } else {
+            backgroundRenderer.shutdown();
+            backgroundRenderer = null;
+        }
+        requestedVersion = -1;
+        planChanged();
+    }
+
+    public boolean isBackgroundRendering() {
+        return backgroundRenderer != null;
+    }
+
+    /**
+     * Stores the part of the world currently visible in the panel into the given rectangle.
+     */
+    private Rectangle getVisibleWorldBounds(Rectangle bounds) {
+        int left = toWorldX(0);
+        int top = toWorldY(0);
+        bounds.setBounds(left, top, toWorldX(getWidth()) + 1 - left, toWorldY(getHeight()) + 1 - top);
+        return bounds;
+    }
+
+
+    private void drawPlan(Graphics2D g2d, Rectangle clip, Room skip, double deviceScale) {
+        // Only rooms the index finds near the repainted area are visited, in stacking order
+        ArrayList<Room> visible = paintQuery;
+        visible.clear();
+        roomIndex.query(clip.x - Room.PAINT_MARGIN, clip.y - Room.PAINT_MARGIN,
+                clip.width + 2 * Room.PAINT_MARGIN, clip.height + 2 * Room.PAINT_MARGIN, visible);
+        visible.sort(stackingOrder);
+
+        for (int i = 0; i < visible.size(); i++) {
+            Room room = visible.get(i);
+            if (room != skip && room.intersectsPaintArea(clip)) {
+                room.drawRooms(g2d, deviceScale, clip);
+                countRoom(room, true, deviceScale);
+            }
+        }
+
+        for (int i = 0; i < visible.size(); i++) {
+            Room room = visible.get(i);
+            if (room != skip && room.intersectsPaintArea(clip)) {
+                room.drawFixtures(g2d, clip, deviceScale);
+            }
+        }
+
+        if (statsOverlayVisible) {
+            // Culled rooms are never visited above, so count them only when the numbers are shown
+            for (int i = 0; i < rooms.size(); i++) {
+                Room room = rooms.get(i);
+                if (room != skip && !room.intersectsPaintArea(clip)) {
+                    countRoom(room, false, deviceScale);
+                }
+            }
+        }
+        visible.clear();
+    }
+
+    /**
+     * Renders every room except the one being edited into an offscreen image,
+     * so drags only have to redraw the moving room on top of it.
+     *
+     * @param activeRoom The room that will be drawn live during the interaction
+     */
+    private void buildStaticLayer(Room activeRoom) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (backgroundRenderer != null || gc == null || getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        // Render at device resolution so HiDPI screens don't get a blurry plan while dragging
+        AffineTransform deviceTransform = gc.getDefaultTransform();
+        int layerWidth = (int) Math.ceil(getWidth() * deviceTransform.getScaleX());
+        int layerHeight = (int) Math.ceil(getHeight() * deviceTransform.getScaleY());
+
+        staticLayer = gc.createCompatibleImage(layerWidth, layerHeight, Transparency.TRANSLUCENT);
+        staticLayerRoom = activeRoom;
+        staticLayerWidth = getWidth();
+        staticLayerHeight = getHeight();
+        Graphics2D layerGraphics = staticLayer.createGraphics();
+        layerGraphics.scale(deviceTransform.getScaleX(), deviceTransform.getScaleY());
+        layerGraphics.translate(panX, panY);
+        layerGraphics.scale(zoom, zoom);
+        drawPlan(layerGraphics, getVisibleWorldBounds(new Rectangle()), activeRoom, deviceTransform.getScaleX() * zoom);
+        layerGraphics.dispose();
+    }
+
+    private double getDeviceScale(Graphics2D g2d) {
+        GraphicsConfiguration gc = g2d.getDeviceConfiguration();
+        if (gc != lastDeviceConfiguration) {
+            lastDeviceConfiguration = gc;
+            lastDeviceScale = gc.getDefaultTransform().getScaleX();
+        }
+        return lastDeviceScale;
+    }
 
-    private String getResizeDirection(Room room, int mouseX, int mouseY) {
-        int handleSize = 8; // Same as HANDLE_SIZE in Room class
-        boolean onLeft = Math.abs(mouseX - room.x) <= handleSize;
-        boolean onRight = Math.abs(mouseX - (room.x + room.width)) <= handleSize;
-        boolean onTop = Math.abs(mouseY - room.y) <= handleSize;
-        boolean onBottom = Math.abs(mouseY - (room.y + room.height)) <= handleSize;
+    public void invalidateStaticLayer() {
+        staticLayer = null;
+        staticLayerRoom = null;
+    }
+
+    private void journalChanged() {
+        if (journal != null) {
+            journal.changed();
+        }
+    }
 
-        if (onTop && onLeft) return "TOP_LEFT";
-        if (onTop && onRight) return "TOP_RIGHT";
-        if (onBottom && onLeft) return "BOTTOM_LEFT";
-        if (onBottom && onRight) return "BOTTOM_RIGHT";
-        if (onTop) return "TOP";
-        if (onBottom) return "BOTTOM";
-        if (onLeft) return "LEFT";
-        if (onRight) return "RIGHT";
-        return "";
+    private void journalChanged(Room room) {
+        if (journal != null) {
+            journal.changed(room);
+        }
+    }
+
+    /**
+     * Called after any change to the rooms, furniture or fixtures of the plan.
+     * Drops cached rendering that may no longer match the model and repaints.
+     */
+    public void planChanged() {
+        journalChanged();
+        planVersion++;
+        invalidateStaticLayer();
+        repaint();
     }
 
     @Override
     public void mouseDragged(MouseEvent e) {
+        noteInput(e);
         if (e.isPopupTrigger()) {
             handleRoomMenu(e);
             return;
         }
+        if (panStart != null) {
+            panBy(e.getX() - panStart.x, e.getY() - panStart.y);
+            panStart = e.getPoint();
+            return;
+        }
+        if (marquee != null) {
+            updateMarquee(toWorldX(e.getX()), toWorldY(e.getY()));
+            return;
+        }
         if (selectedRoom != null || selectedFurniture != null) {
+            // Damage is the union of the edited object's old and new area
+            addSelectionDamage();
+            ArrayList<Line2D> oldProjectionLines = new ArrayList<>(projectionLines);
             if (resizing) {
                 handleResizing(e);
             } else {
                 handleMoving(e);
             }
+            addSelectionDamage();
+            if (!sameLines(oldProjectionLines, projectionLines)) {
+                addProjectionDamage(oldProjectionLines);
+                addProjectionDamage(projectionLines);
+            }
+            repaintDamage();
+        }
+    }
+
+    private void addDamage(Rectangle area) {
+        if (damage == null) {
+            damage = new Rectangle(area);
+        } else {
+            damage.add(area);
         }
+    }
+
+    private void addSelectionDamage() {
+        if (groupIndex != null) {
+            for (Room room : selectedRooms) {
+                addDamage(room.getPaintBounds());
+            }
+        } else if (selectedRoom != null) {
+            addDamage(selectedRoom.getPaintBounds());
+        }
+        if (selectedFurniture != null) {
+            Rectangle furnitureBounds = new Rectangle(selectedFurniture.getX(), selectedFurniture.getY(), selectedFurniture.getWidth(), selectedFurniture.getHeight());
+            furnitureBounds.grow(Room.PAINT_MARGIN, Room.PAINT_MARGIN);
+            addDamage(furnitureBounds);
+        }
+    }
+
+    private void addProjectionDamage(ArrayList<Line2D> lines) {
+        for (Line2D line : lines) {
+            Rectangle lineBounds = line.getBounds();
+            lineBounds.grow(1, 1);
+            addDamage(lineBounds);
+        }
+    }
+
+    private boolean sameLines(ArrayList<Line2D> a, ArrayList<Line2D> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            Line2D la = a.get(i);
+            Line2D lb = b.get(i);
+            if (!la.getP1().equals(lb.getP1()) || !la.getP2().equals(lb.getP2())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void repaintDamage() {
+        if (damage != null) {
+            // Damage is tracked in world coordinates
+            int left = (int) Math.floor(damage.x * zoom + panX);
+            int top = (int) Math.floor(damage.y * zoom + panY);
+            int right = (int) Math.ceil((damage.x + damage.width) * zoom + panX);
+            int bottom = (int) Math.ceil((damage.y + damage.height) * zoom + panY);
+            repaint(left - 1, top - 1, right - left + 2, bottom - top + 2);
+            damage = null;
+        }
+    }
+
+    private int toWorldX(int screenX) {
+        return (int) Math.floor((screenX - panX) / zoom);
+    }
+
+    private int toWorldY(int screenY) {
+        return (int) Math.floor((screenY - panY) / zoom);
+    }
+
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Zooms the view by the given factor, keeping the world point under the
+     * given screen position fixed.
+     *
+     * @param screenX X-coordinate of the zoom centre in panel pixels
+     * @param screenY Y-coordinate of the zoom centre in panel pixels
+     * @param factor  Multiplier applied to the current zoom
+     */
+    public void zoomAt(int screenX, int screenY, double factor) {
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+        double worldX = (screenX - panX) / zoom;
+        double worldY = (screenY - panY) / zoom;
+        zoom = newZoom;
+        panX = screenX - worldX * zoom;
+        panY = screenY - worldY * zoom;
+        viewChanged();
+    }
+
+    /**
+     * Scrolls the view by the given number of panel pixels.
+     */
+    public void panBy(int dx, int dy) {
+        panX += dx;
+        panY += dy;
+        viewChanged();
+    }
+
+    private void viewChanged() {
+        planVersion++;
+        invalidateStaticLayer();
         repaint();
     }
 
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+        noteInput(e);
+        zoomAt(e.getX(), e.getY(), Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()));
+    }
+
     private void handleResizing(MouseEvent e) {
         if (window.globalLock) return;
         if (selectedFurniture != null) {
@@ -773,68 +1342,22 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         } else if (selectedRoom != null) {
             handleRoomResizing(e);
         }
-        repaint();
     }
 
     private void handleFurnitureResizing(MouseEvent e) {
         if (selectedFurniture.lock) return;
 
-        int dx = e.getX() - initialPoint.x;
-        int dy = e.getY() - initialPoint.y;
-
-        // Find the containing room
-        Room containingRoom = null;
-        for (Room room : rooms) {
-            if (room.getFurnitureList().contains(selectedFurniture)) {
-                containingRoom = room;
-                break;
-            }
-        }
+        int dx = toWorldX(e.getX()) - initialPoint.x;
+        int dy = toWorldY(e.getY()) - initialPoint.y;
 
+        Room containingRoom = findRoomContainingFurniture(selectedFurniture);
         if (containingRoom == null) return;
 
-        // Calculate new dimensions based on resize direction
-        int newX = selectedFurniture.getX();
-        int newY = selectedFurniture.getY();
-        int newWidth = selectedFurniture.getWidth();
-        int newHeight = selectedFurniture.getHeight();
-
-        switch (resizeDirection) {
-            case "TOP_LEFT":
-                newX += dx;
-                newY += dy;
-                newWidth -= dx;
-                newHeight -= dy;
-                break;
-            case "TOP":
-                newY += dy;
-                newHeight -= dy;
-                break;
-            case "TOP_RIGHT":
-                newY += dy;
-                newWidth += dx;
-                newHeight -= dy;
-                break;
-            case "RIGHT":
-                newWidth += dx;
-                break;
-            case "BOTTOM_RIGHT":
-                newWidth += dx;
-                newHeight += dy;
-                break;
-            case "BOTTOM":
-                newHeight += dy;
-                break;
-            case "BOTTOM_LEFT":
-                newX += dx;
-                newWidth -= dx;
-                newHeight += dy;
-                break;
-            case "LEFT":
-                newX += dx;
-                newWidth -= dx;
-                break;
-        }
+        // Calculate new dimensions based on the handle being dragged
+        int newX = resizeHandle.resizeX(selectedFurniture.getX(), dx);
+        int newY = resizeHandle.resizeY(selectedFurniture.getY(), dy);
+        int newWidth = resizeHandle.resizeWidth(selectedFurniture.getWidth(), dx);
+        int newHeight = resizeHandle.resizeHeight(selectedFurniture.getHeight(), dy);
 
         // Ensure minimum size
         int minSize = Math.max(selectedFurniture.imgwidth, selectedFurniture.imgheight);
@@ -861,74 +1384,33 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         selectedFurniture.setX(newX);
         selectedFurniture.setY(newY);
         selectedFurniture.resize(newWidth, newHeight);
+        containingRoom.furnitureChanged(selectedFurniture);
 
         // Update initial point for next drag
-        initialPoint = e.getPoint();
+        initialPoint.setLocation(toWorldX(e.getX()), toWorldY(e.getY()));
     }
 
     private void handleRoomResizing(MouseEvent e) {
-        int dx = e.getX() - initialPoint.x;
-        int dy = e.getY() - initialPoint.y;
-        int newX = selectedRoom.x;
-        int newY = selectedRoom.y;
-        int newWidth = selectedRoom.width;
-        int newHeight = selectedRoom.height;
-
-        // Original room resizing logic...
-        switch (resizeDirection) {
-            case "TOP":
-                newY += dy;
-                newHeight -= dy;
-                break;
-            case "BOTTOM":
-                newHeight += dy;
-                break;
-            case "LEFT":
-                newX += dx;
-                newWidth -= dx;
-                break;
-            case "RIGHT":
-                newWidth += dx;
-                break;
-            case "TOP_LEFT":
-                newX += dx;
-                newY += dy;
-                newWidth -= dx;
-                newHeight -= dy;
-                break;
-            case "TOP_RIGHT":
-                newY += dy;
-                newWidth += dx;
-                newHeight -= dy;
-                break;
-            case "BOTTOM_LEFT":
-                newX += dx;
-                newWidth -= dx;
-                newHeight += dy;
-                break;
-            case "BOTTOM_RIGHT":
-                newWidth += dx;
-                newHeight += dy;
-                break;
-        }
+        int dx = toWorldX(e.getX()) - initialPoint.x;
+        int dy = toWorldY(e.getY()) - initialPoint.y;
+        int newX = resizeHandle.resizeX(selectedRoom.x, dx);
+        int newY = resizeHandle.resizeY(selectedRoom.y, dy);
+        int newWidth = resizeHandle.resizeWidth(selectedRoom.width, dx);
+        int newHeight = resizeHandle.resizeHeight(selectedRoom.height, dy);
 
         // Apply snapping and boundary checks as before
         projectionLines.clear();
-        SnapResult snapX = snapToNearestRoom(newX, newY, newWidth, newHeight, true);
-        SnapResult snapY = snapToNearestRoom(newY, newX, newHeight, newWidth, false);
+        SnapEngine.Snap snapX = roomSnap.snap(newX, newWidth, newY, newHeight, true, selectedRoom);
+        SnapEngine.Snap snapY = roomSnap.snap(newY, newHeight, newX, newWidth, false, selectedRoom);
 
         newX = snapX.position;
         newY = snapY.position;
-        newWidth = snapX.size;
-        newHeight = snapY.size;
 
         addProjectionLines(snapX, snapY);
 
-        // Ensure minimum size and within panel boundaries
+        // Ensure minimum size
         newWidth = Math.max(20, newWidth);
         newHeight = Math.max(20, newHeight);
-        newX = Math.max(0, Math.min(newX, getWidth() - newWidth));
-        newY = Math.max(0, Math.min(newY, getHeight() - newHeight));
 
         // Check if the new room dimensions would cause any furniture to go out of bounds
         boolean furnitureInBounds = true;
@@ -943,6 +1425,7 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
         if (isRoomPlacementValid(selectedRoom, newWidth, newHeight, newX, newY) && furnitureInBounds) {
             selectedRoom.resize(newWidth, newHeight);
             selectedRoom.move(newX, newY);
+            roomChanged(selectedRoom);
             updateTotalArea();
             window.updateTotalAreaLabel();
 
@@ -950,34 +1433,39 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
             adjustFurniturePositions(selectedRoom);
         }
 
-        initialPoint = e.getPoint();
+        initialPoint.setLocation(toWorldX(e.getX()), toWorldY(e.getY()));
     }
 
     private void handleMoving(MouseEvent e) {
         if (window.globalLock) return;
-        if (selectedFurniture != null) {
+        if (groupIndex != null) {
+            handleGroupMoving(e);
+        } else if (selectedFurniture != null) {
             handleFurnitureMoving(e);
         } else if (selectedRoom != null) {
             handleRoomMoving(e);
         }
-        repaint();
     }
 
     private void handleFurnitureMoving(MouseEvent e) {
         if(selectedFurniture.lock) return;
-        int newX = e.getX() - mouseOffset.x;
-        int newY = e.getY() - mouseOffset.y;
+        int newX = toWorldX(e.getX()) - mouseOffset.x;
+        int newY = toWorldY(e.getY()) - mouseOffset.y;
 
-        // Find the containing room
-        Room containingRoom = null;
-        for (Room room : rooms) {
-            if (room.getFurnitureList().contains(selectedFurniture)) {
-                containingRoom = room;
-                break;
+        Room containingRoom = findRoomContainingFurniture(selectedFurniture);
+        if (containingRoom != null) {
+            if (furnitureSnapping) {
+                projectionLines.clear();
+                if (furnitureSnap == null) {
+                    furnitureSnap = buildFurnitureSnap(containingRoom);
+                }
+                SnapEngine.Snap snapX = furnitureSnap.snap(newX, selectedFurniture.getWidth(), newY, selectedFurniture.getHeight(), true, selectedFurniture);
+                SnapEngine.Snap snapY = furnitureSnap.snap(newY, selectedFurniture.getHeight(), newX, selectedFurniture.getWidth(), false, selectedFurniture);
+                newX = snapX.position;
+                newY = snapY.position;
+                addProjectionLines(snapX, snapY);
             }
-        }
 
-        if (containingRoom != null) {
             // Ensure furniture stays within room boundaries
             newX = Math.max(containingRoom.x,
                           Math.min(newX,
@@ -988,34 +1476,155 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
 
             selectedFurniture.setX(newX);
             selectedFurniture.setY(newY);
+            containingRoom.furnitureChanged(selectedFurniture);
         }
     }
 
     private void handleRoomMoving(MouseEvent e) {
-        int newX = e.getX() - mouseOffset.x;
-        int newY = e.getY() - mouseOffset.y;
+        int newX = toWorldX(e.getX()) - mouseOffset.x;
+        int newY = toWorldY(e.getY()) - mouseOffset.y;
 
         projectionLines.clear();
 
-        SnapResult snapX = snapToNearestRoom(newX, newY, selectedRoom.width, selectedRoom.height, true);
-        SnapResult snapY = snapToNearestRoom(newY, newX, selectedRoom.height, selectedRoom.width, false);
+        SnapEngine.Snap snapX = roomSnap.snap(newX, selectedRoom.width, newY, selectedRoom.height, true, selectedRoom);
+        SnapEngine.Snap snapY = roomSnap.snap(newY, selectedRoom.height, newX, selectedRoom.width, false, selectedRoom);
 
         newX = snapX.position;
         newY = snapY.position;
 
         addProjectionLines(snapX, snapY);
 
-        newX = Math.max(0, Math.min(newX, getWidth() - selectedRoom.width));
-        newY = Math.max(0, Math.min(newY, getHeight() - selectedRoom.height));
-
         if (isRoomPlacementValid(selectedRoom, selectedRoom.width, selectedRoom.height, newX, newY)) {
-            // Calculate the movement delta
-            int deltaX = newX - selectedRoom.x;
-            int deltaY = newY - selectedRoom.y;
-
             // Move the room
             selectedRoom.move(newX, newY);
+            roomChanged(selectedRoom);
+        }
+    }
+
+    private void startMarquee() {
+        marqueeStart = new Point(mouseX, mouseY);
+        marquee = new Rectangle(mouseX, mouseY, 0, 0);
+        marqueeBase.clear();
+        marqueeBase.addAll(selectedRooms);
+        marqueeHits.clear();
+    }
+
+    /**
+     * Stretches the selection rectangle to the given world point and selects the
+     * rooms it overlaps, found with one query on the room index.
+     */
+    private void updateMarquee(int worldX, int worldY) {
+        addMarqueeDamage();
+        marquee.setBounds(Math.min(worldX, marqueeStart.x), Math.min(worldY, marqueeStart.y),
+                Math.abs(worldX - marqueeStart.x), Math.abs(worldY - marqueeStart.y));
+        addMarqueeDamage();
+
+        marqueeQuery.clear();
+        roomIndex.query(marquee.x, marquee.y, marquee.width, marquee.height, marqueeQuery);
+        marqueeHits.clear();
+        for (Room room : marqueeQuery) {
+            if (room.overlaps(marquee.x, marquee.y, marquee.width, marquee.height)) {
+                marqueeHits.add(room);
+            }
+        }
+        marqueeQuery.clear();
+
+        // Only the rooms whose selection changed need repainting
+        boolean changed = false;
+        Iterator<Room> selected = selectedRooms.iterator();
+        while (selected.hasNext()) {
+            Room room = selected.next();
+            if (!marqueeBase.contains(room) && !marqueeHits.contains(room)) {
+                selected.remove();
+                room.selected = false;
+                addDamage(room.getPaintBounds());
+                changed = true;
+            }
+        }
+        for (Room room : marqueeHits) {
+            if (selectedRooms.add(room)) {
+                room.selected = true;
+                addDamage(room.getPaintBounds());
+                changed = true;
+            }
+        }
+        if (changed) {
+            if (selectedRoom == null || !selectedRooms.contains(selectedRoom)) {
+                selectedRoom = selectedRooms.isEmpty() ? null : selectedRooms.iterator().next();
+            }
+            planVersion++;
+        }
+        repaintDamage();
+    }
+
+    private void addMarqueeDamage() {
+        addDamage(new Rectangle(marquee.x - 1, marquee.y - 1, marquee.width + 2, marquee.height + 2));
+    }
+
+    /**
+     * Starts dragging every selected room together. The rooms are indexed at their
+     * starting positions so each drag step can check the whole group for collisions at once.
+     */
+    private void startGroupDrag(Room grabbed) {
+        selectedRoom = grabbed;
+        groupIndex = new SpatialGrid<>(ROOM_INDEX_CELL_SIZE);
+        groupBounds = null;
+        for (Room room : selectedRooms) {
+            groupIndex.insert(room, room.x, room.y, room.width, room.height);
+            if (groupBounds == null) {
+                groupBounds = new Rectangle(room.x, room.y, room.width, room.height);
+            } else {
+                groupBounds.add(new Rectangle(room.x, room.y, room.width, room.height));
+            }
+        }
+        groupDragStart = new Point(mouseX, mouseY);
+        groupOffset.setLocation(0, 0);
+        repaint();
+    }
+
+    private void handleGroupMoving(MouseEvent e) {
+        for (Room room : selectedRooms) {
+            if (room.lock) {
+                return; // Locked rooms stay put, and the group only moves as a whole
+            }
+        }
+        int dx = toWorldX(e.getX()) - groupDragStart.x;
+        int dy = toWorldY(e.getY()) - groupDragStart.y;
+        if ((dx == groupOffset.x && dy == groupOffset.y) || !isGroupPlacementValid(dx, dy)) {
+            return;
+        }
+        int stepX = dx - groupOffset.x;
+        int stepY = dy - groupOffset.y;
+        for (Room room : selectedRooms) {
+            room.move(room.x + stepX, room.y + stepY);
+            roomChanged(room);
+        }
+        groupOffset.setLocation(dx, dy);
+        planVersion++; // The background renderer draws every selected room except selectedRoom
+    }
+
+    /**
+     * Returns true if the selected rooms, moved by (dx, dy) from where the drag started,
+     * overlap no other room. The rooms near the moved group come from one query on the
+     * room index, and each is checked only against the group members it could touch.
+     */
+    private boolean isGroupPlacementValid(int dx, int dy) {
+        roomQuery.clear();
+        roomIndex.query(groupBounds.x + dx, groupBounds.y + dy, groupBounds.width, groupBounds.height, roomQuery);
+        for (Room other : roomQuery) {
+            if (selectedRooms.contains(other)) {
+                continue;
+            }
+            // Shift the other room instead of the group, so the group index stays as it was at the start
+            groupQuery.clear();
+            groupIndex.query(other.x - dx, other.y - dy, other.width, other.height, groupQuery);
+            for (Room member : groupQuery) {
+                if (other.overlaps(member.x - groupOffset.x + dx, member.y - groupOffset.y + dy, member.width, member.height)) {
+                    return false;
+                }
+            }
         }
+        return true;
     }
 
     private boolean isFurnitureInBounds(Furniture furniture, int roomX, int roomY, int roomWidth, int roomHeight) {
@@ -1033,110 +1642,88 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
             int newY = Math.max(room.y, Math.min(furniture.getY(),
                               room.y + room.height - furniture.getHeight()));
 
-            furniture.setX(newX);
-            furniture.setY(newY);
+            if (newX != furniture.getX() || newY != furniture.getY()) {
+                furniture.setX(newX);
+                furniture.setY(newY);
+                room.furnitureChanged(furniture);
+            }
         }
+        room.invalidateSprite();
     }
 
-    private void addProjectionLines(SnapResult snapX, SnapResult snapY) {
+    private void addProjectionLines(SnapEngine.Snap snapX, SnapEngine.Snap snapY) {
+        // Projection lines span the visible part of the world
+        int left = toWorldX(0);
+        int top = toWorldY(0);
+        int right = toWorldX(getWidth()) + 1;
+        int bottom = toWorldY(getHeight()) + 1;
+
         // Add vertical projection lines
         if (snapX.snapped) {
-            projectionLines.add(new Line2D.Double(snapX.snapLine, 0, snapX.snapLine, getHeight()));
-            // Add opposite axis lines for X
-            if (snapX.nearestRoom != null) {
-                projectionLines.add(new Line2D.Double(0, snapX.nearestRoom.y, getWidth(), snapX.nearestRoom.y));
-                projectionLines.add(new Line2D.Double(0, snapX.nearestRoom.y + snapX.nearestRoom.height, getWidth(), snapX.nearestRoom.y + snapX.nearestRoom.height));
+            projectionLines.add(new Line2D.Double(snapX.line, top, snapX.line, bottom));
+            // Add opposite axis lines for X at the ends of the edge snapped to
+            if (snapX.owner != null) {
+                projectionLines.add(new Line2D.Double(left, snapX.extentStart, right, snapX.extentStart));
+                projectionLines.add(new Line2D.Double(left, snapX.extentEnd, right, snapX.extentEnd));
             }
         }
 
         // Add horizontal projection lines
         if (snapY.snapped) {
-            projectionLines.add(new Line2D.Double(0, snapY.snapLine, getWidth(), snapY.snapLine));
-            // Add opposite axis lines for Y
-            if (snapY.nearestRoom != null) {
-                projectionLines.add(new Line2D.Double(snapY.nearestRoom.x, 0, snapY.nearestRoom.x, getHeight()));
-                projectionLines.add(new Line2D.Double(snapY.nearestRoom.x + snapY.nearestRoom.width, 0, snapY.nearestRoom.x + snapY.nearestRoom.width, getHeight()));
+            projectionLines.add(new Line2D.Double(left, snapY.line, right, snapY.line));
+            // Add opposite axis lines for Y at the ends of the edge snapped to
+            if (snapY.owner != null) {
+                projectionLines.add(new Line2D.Double(snapY.extentStart, top, snapY.extentStart, bottom));
+                projectionLines.add(new Line2D.Double(snapY.extentEnd, top, snapY.extentEnd, bottom));
             }
         }
     }
 
-    private class SnapResult {
-        int position;
-        int size;
-        boolean snapped;
-        int snapLine;
-        Room nearestRoom;
-
-        SnapResult(int position, int size, boolean snapped, int snapLine, Room nearestRoom) {
-            this.position = position;
-            this.size = size;
-            this.snapped = snapped;
-            this.snapLine = snapLine;
-            this.nearestRoom = nearestRoom;
+    /**
+     * Collects the edges a piece of furniture can snap to while it is dragged: the
+     * walls of its room and the other furniture in it.
+     */
+    private SnapEngine buildFurnitureSnap(Room room) {
+        SnapEngine engine = new SnapEngine(snapDistance);
+        engine.setGridSpacing(roomSnap.getGridSpacing());
+        engine.update(room, room.x, room.y, room.width, room.height);
+        for (Furniture furniture : room.getFurnitureList()) {
+            engine.update(furniture, furniture.getX(), furniture.getY(), furniture.getWidth(), furniture.getHeight());
         }
+        return engine;
     }
 
-    private SnapResult snapToNearestRoom(int position, int otherCoordinate, int size, int otherSize, boolean isHorizontal) {
-        int closestDistance = Integer.MAX_VALUE;
-        int snappedPosition = position;
-        int snappedSize = size;
-        boolean snapped = false;
-        int snapLine = 0;
-        Room nearestRoom = null;
+    /**
+     * Sets the spacing of the grid rooms and furniture snap to when no edge is in reach, or 0 to turn grid snapping off.
+     */
+    public void setGridSnap(int spacing) {
+        roomSnap.setGridSpacing(spacing);
+    }
 
-        for (Room room : rooms) {
-            if (room == selectedRoom) continue;
-
-            int[] snapPoints = isHorizontal
-                    ? new int[]{room.x, room.x + room.width}
-                    : new int[]{room.y, room.y + room.height};
-
-            for (int point : snapPoints) {
-                int[] distances = {
-                        Math.abs(position - point),
-                        Math.abs(position + size - point)
-                };
-
-                for (int i = 0; i < distances.length; i++) {
-                    if (distances[i] <= snapDistance && distances[i] < closestDistance) {
-                        boolean aligned = isHorizontal
-                                ? (otherCoordinate < room.y + room.height && otherCoordinate + otherSize > room.y)
-                                : (otherCoordinate < room.x + room.width && otherCoordinate + otherSize > room.x);
-
-                        if (aligned) {
-                            closestDistance = distances[i];
-                            if (i == 0) {
-                                snappedPosition = point;
-                                snappedSize = size;
-                            } else {
-                                snappedPosition = point - size;
-                                snappedSize = size;
-                            }
-                            snapped = true;
-                            snapLine = point;
-                            nearestRoom = room;
-                        }
-                    }
-                }
-            }
-        }
+    public int getGridSnap() {
+        return roomSnap.getGridSpacing();
+    }
 
-        return new SnapResult(snappedPosition, snappedSize, snapped, snapLine, nearestRoom);
+    /**
+     * Turns snapping of dragged furniture to the walls and other furniture of its room on or off.
+     */
+    public void setFurnitureSnapping(boolean enabled) {
+        furnitureSnapping = enabled;
     }
 
-    private boolean isRoomPlacementValid(Room roomToCheck, int newWidth, int newHeight, int newX, int newY) {
-        // Check if the room is within panel boundaries
-        if (newX < 0 || newY < 0 || newX + newWidth > getWidth() || newY + newHeight > getHeight()) {
-            return false;
-        }
+    public boolean isFurnitureSnapping() {
+        return furnitureSnapping;
+    }
 
-        Rectangle newRoomBounds = new Rectangle(newX, newY, newWidth, newHeight);
-        for (Room room : rooms) {
-            if (room != roomToCheck && room.getBounds().intersects(newRoomBounds)) {
+    private boolean isRoomPlacementValid(Room roomToCheck, int newWidth, int newHeight, int newX, int newY) {
+        roomQuery.clear();
+        roomIndex.query(newX, newY, newWidth, newHeight, roomQuery);
+        for (Room room : roomQuery) {
+            if (room != roomToCheck && room.overlaps(newX, newY, newWidth, newHeight)) {
                 return false; // Overlap detected
             }
         }
-        return true; // No overlap and within boundaries
+        return true; // No overlap
     }
 
     @Override
@@ -1163,19 +1750,82 @@ public class FloorPlanPanel extends JPanel implements MouseListener, MouseMotion
     @Override
     public void mouseMoved(MouseEvent e) {}
 
-    private boolean isOverlapping(Room room) {
-        Rectangle newBounds = new Rectangle(room.x, room.y, room.width, room.height);
-        for (Room existingRoom : rooms) {
-            Rectangle existingBounds = new Rectangle(existingRoom.x, existingRoom.y, existingRoom.width, existingRoom.height);
-            if (newBounds.intersects(existingBounds)) {
-                return true;
-            }
+    /**
+     * Returns the rooms of the plan, in stacking order. The list cannot be changed; use addRoom, removeRoom and setRooms.
+     */
+    public List<Room> getRooms() {
+        return roomsView;
+    }
+
+    /**
+     * Replaces every room in the plan, e.g. after loading a file.
+     */
+    public void setRooms(List<Room> rooms) {
+        this.rooms.clear();
+        this.rooms.addAll(rooms);
+        selectedRoom = null;
+        selectedRooms.clear();
+        selectedFurniture = null;
+        roomIndex.clear();
+        roomSnap.clear();
+        adjacency.clear();
+        for (Room room : rooms) {
+            roomIndex.insert(room, room.x, room.y, room.width, room.height);
+            roomSnap.update(room, room.x, room.y, room.width, room.height);
         }
-        return false;
+        for (Room room : rooms) {
+            adjacency.update(room); // Needs every room in the index first
+        }
+        journalChanged();
+    }
+
+    public void addRoom(Room room) {
+        rooms.add(room);
+        journalChanged();
+        roomIndex.insert(room, room.x, room.y, room.width, room.height);
+        roomSnap.update(room, room.x, room.y, room.width, room.height);
+        adjacency.update(room);
+    }
+
+    public void removeRoom(Room room) {
+        rooms.remove(room);
+        journalChanged();
+        roomIndex.remove(room);
+        roomSnap.remove(room);
+        adjacency.remove(room);
+        deselectRoom(room);
+    }
+
+    /**
+     * Removes several rooms with a single pass over the room list.
+     */
+    public void removeRooms(Collection<Room> removed) {
+        HashSet<Room> removedSet = new HashSet<>(removed);
+        rooms.removeIf(removedSet::contains);
+        journalChanged();
+        for (Room room : removedSet) {
+            roomIndex.remove(room);
+            roomSnap.remove(room);
+            adjacency.remove(room);
+            deselectRoom(room);
+        }
+    }
+
+    /**
+     * Called after a room has been moved, resized or rotated, to keep the room index in step.
+     */
+    public void roomChanged(Room room) {
+        journalChanged(room);
+        roomIndex.update(room, room.x, room.y, room.width, room.height);
+        roomSnap.update(room, room.x, room.y, room.width, room.height);
+        adjacency.update(room);
     }
 
-    public ArrayList<Room> getRooms() {
-        return rooms;
+    /**
+     * Returns the graph of walls shared between rooms.
+     */
+    public AdjacencyGraph getAdjacency() {
+        return adjacency;
     }
 
     public void updateTotalArea() {
@@ -0,0 +1,147 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Frame-time and input-latency statistics for the floor plan panel.
+ * Durations go into fixed-size log-linear histograms, so memory use does not
+ * grow with the number of frames and percentiles stay within 1/8 of a power of two.
+ */
+public class FrameStats {
+    final Histogram paintTime = new Histogram();
+    final Histogram inputLatency = new Histogram();
+
+    // Items drawn and skipped by culling in the last frame; culled items are only counted while the overlay is shown
+    int roomsDrawn, roomsCulled;
+    int furnitureDrawn, furnitureCulled;
+    int fixturesDrawn, fixturesCulled;
+
+    void resetFrameCounts() {
+        roomsDrawn = roomsCulled = 0;
+        furnitureDrawn = furnitureCulled = 0;
+        fixturesDrawn = fixturesCulled = 0;
+    }
+
+    public void reset() {
+        paintTime.reset();
+        inputLatency.reset();
+        resetFrameCounts();
+    }
+
+    public Histogram getPaintTime() {
+        return paintTime;
+    }
+
+    public Histogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Writes the percentiles of both histograms and the last frame's drawn/culled counts as CSV.
+     */
+    public void writeCsv(Writer out) {
+        PrintWriter csv = new PrintWriter(out);
+        csv.println("metric,count,mean_ms,p50_ms,p90_ms,p95_ms,p99_ms,max_ms");
+        writeRow(csv, "paint", paintTime);
+        writeRow(csv, "input_latency", inputLatency);
+        csv.println();
+        csv.println("item,drawn,culled");
+        csv.println("rooms," + roomsDrawn + "," + roomsCulled);
+        csv.println("furniture," + furnitureDrawn + "," + furnitureCulled);
+        csv.println("fixtures," + fixturesDrawn + "," + fixturesCulled);
+        csv.flush();
+    }
+
+    public void exportCsv(String path) throws IOException {
+        try (Writer out = new FileWriter(path)) {
+            writeCsv(out);
+        }
+    }
+
+    private static void writeRow(PrintWriter csv, String name, Histogram histogram) {
+        csv.printf("%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n", name, histogram.getCount(),
+                histogram.getMeanMillis(), histogram.getPercentileMillis(50), histogram.getPercentileMillis(90),
+                histogram.getPercentileMillis(95), histogram.getPercentileMillis(99), histogram.getMaxMillis());
+    }
+
+    /**
+     * Histogram of durations in microseconds. Each power of two is split into
+     * eight linear buckets; values beyond the last bucket are clamped into it.
+     */
+    public static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int MAX_EXPONENT = 36; // About 19 hours
+        private final long[] counts = new long[(MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS];
+        private long count = 0, totalMicros = 0, maxMicros = 0;
+
+        public void recordNanos(long nanos) {
+            recordMicros(nanos / 1000);
+        }
+
+        public void recordMicros(long micros) {
+            micros = Math.max(0, micros);
+            counts[Math.min(bucketOf(micros), counts.length - 1)]++;
+            count++;
+            totalMicros += micros;
+            maxMicros = Math.max(maxMicros, micros);
+        }
+
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            int subBucket = bucket % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BUCKET_BITS);
+            return (SUB_BUCKETS + subBucket) * width + width - 1;
+        }
+
+        /**
+         * @param percentile Between 0 and 100
+         * @return The upper bound of the bucket holding the given percentile, in milliseconds
+         */
+        public double getPercentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), maxMicros) / 1000.0;
+                }
+            }
+            return maxMicros / 1000.0;
+        }
+
+        public double getMeanMillis() {
+            return count == 0 ? 0 : totalMicros / 1000.0 / count;
+        }
+
+        public double getMaxMillis() {
+            return maxMicros / 1000.0;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void reset() {
+            Arrays.fill(counts, 0);
+            count = totalMicros = maxMicros = 0;
+        }
+    }
+}
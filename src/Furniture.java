@@ -1,200 +1,268 @@
-import java.awt.*;
-import java.awt.geom.Ellipse2D;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-import javax.swing.ImageIcon;
-
-public class Furniture implements Serializable {
-    private static final long serialVersionUID = 1L;
-    private String name;
-    private int x, y, width, height; 
-    int imgwidth, imgheight;
-    private transient Image image;
-    boolean lock = false;
-    private boolean selected;
-    private static final int HANDLE_SIZE = 8;
-    private static final Color HANDLE_COLOR = new Color(41, 128, 185);
-    private static final Color HANDLE_BORDER_COLOR = new Color(52, 152, 219);
-    private int rotation = 0;
-
-    public Furniture(String name, int x, int y, ImageIcon imageIcon) {
-        this.name = name;
-        this.x = x;
-        this.y = y;
-        this.image = imageIcon.getImage();
-        this.imgwidth = imageIcon.getIconWidth();
-        this.imgheight = imageIcon.getIconHeight();
-        this.width = imgwidth;
-        this.height = imgheight;
-        this.selected = false;
-    }
-
-    public Furniture(String name, ImageIcon imageIcon) {
-        this(name, 0, 0, imageIcon);
-    }
-
-    public String getName() { return name; }
-    public int getX() { return x; }
-    public int getY() { return y; }
-    public int getWidth() { return width; }
-    public int getHeight() { return height; }
-    public Image getImage() { return image; }
-    public boolean isSelected() { return selected; }
-
-    public void setX(int x) { this.x = x; }
-    public void setY(int y) { this.y = y; }
-    public void setWidth(int width) { this.width = width; }
-    public void setHeight(int height) { this.height = height; }
-    public void setSelected(boolean selected) { this.selected = selected; }
-
-    public void move(int deltaX, int deltaY) {
-        if(lock) return;
-        this.x += deltaX;
-        this.y += deltaY;
-    }
-
-    public void resize(int newWidth, int newHeight) {
-        if(lock) return;
-        this.width = newWidth;
-        this.height = newHeight;
-    }
-
-    public void rotateFurniture(int bydegrees) {
-        this.rotation += bydegrees;
-        this.rotation %= 360;
-
-        // swap width and height if rotation is 90 or 270 degrees
-        if (rotation == 90 || rotation == 270) {
-            int temp = width;
-            width = height;
-            height = temp;
-        }
-
-    }
-
-    public int getRotation() {
-        return rotation;
-    }
-
-    public void draw(Graphics2D g2d) {
-        // Draw selection rectangle if selected
-        if (selected && !lock) {
-            // Draw white background
-            g2d.setColor(new Color(255, 255, 255, 128)); // Semi-transparent white
-            g2d.fillRect(x, y, width, height);
-            
-            // Draw border
-            g2d.setColor(Color.BLACK);
-            g2d.setStroke(new BasicStroke(2));
-            g2d.drawRect(x, y, width, height);
-
-            // Draw resize handles
-            drawResizeHandles(g2d);
-        } else {
-            // Draw border for unselected state
-            g2d.setColor(Color.BLACK);
-            g2d.setStroke(new BasicStroke(1));
-            g2d.drawRect(x, y, width, height);
-        }
-
-        // Draw the furniture image
-        int imgX = x + (width - imgwidth) / 2;
-        int imgY = y + (height - imgheight) / 2;
-        g2d.drawImage(image, imgX, imgY, imgwidth, imgheight, null);
-    }
-
-    private void drawResizeHandles(Graphics2D g2d) {
-        // Enable anti-aliasing for smoother handle rendering
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        // Define positions for all handles
-        int[][] handlePositions = {
-            {x, y},                    // TOP_LEFT
-            {x + width/2, y},          // TOP
-            {x + width, y},            // TOP_RIGHT
-            {x + width, y + height/2}, // RIGHT
-            {x + width, y + height},   // BOTTOM_RIGHT
-            {x + width/2, y + height}, // BOTTOM
-            {x, y + height},           // BOTTOM_LEFT
-            {x, y + height/2}          // LEFT
-        };
-
-        // Draw each handle
-        for (int[] pos : handlePositions) {
-            Ellipse2D handle = new Ellipse2D.Double(
-                pos[0] - HANDLE_SIZE/2, 
-                pos[1] - HANDLE_SIZE/2,
-                HANDLE_SIZE,
-                HANDLE_SIZE
-            );
-            g2d.setColor(HANDLE_COLOR);
-            g2d.fill(handle);
-            g2d.setColor(HANDLE_BORDER_COLOR);
-            g2d.setStroke(new BasicStroke(1));
-            g2d.draw(handle);
-        }
-    }
-
-    boolean containsHandle(int px, int py) {
-        // Define positions for all handles
-        int[][] handlePositions = {
-                {x, y}, {x + width, y}, {x, y + height}, {x + width, y + height},
-                {x + width / 2, y}, {x + width / 2, y + height},
-                {x, y + height / 2}, {x + width, y + height / 2}
-        };
-
-        // Check each handle
-        for (int[] pos : handlePositions) {
-            // Create an expanded area around each handle
-            Ellipse2D handle = new Ellipse2D.Double(
-                    pos[0] - HANDLE_SIZE, // Expand by HANDLE_SIZE
-                    pos[1] - HANDLE_SIZE,
-                    HANDLE_SIZE * 2,      // Double the size
-                    HANDLE_SIZE * 2
-            );
-            if (handle.contains(px, py)) {
-                return true; // Point is inside an expanded handle
-            }
-        }
-        return false; // Point is not inside any handle
-    }
-
-    public String getResizeDirection(int px, int py) {
-        int handleSize = HANDLE_SIZE;
-        boolean onLeft = Math.abs(px - x) <= handleSize;
-        boolean onRight = Math.abs(px - (x + width)) <= handleSize;
-        boolean onTop = Math.abs(py - y) <= handleSize;
-        boolean onBottom = Math.abs(py - (y + height)) <= handleSize;
-
-        if (onTop && onLeft) return "TOP_LEFT";
-        if (onTop && onRight) return "TOP_RIGHT";
-        if (onBottom && onLeft) return "BOTTOM_LEFT";
-        if (onBottom && onRight) return "BOTTOM_RIGHT";
-        if (onTop) return "TOP";
-        if (onBottom) return "BOTTOM";
-        if (onLeft) return "LEFT";
-        if (onRight) return "RIGHT";
-        return "";
-    }
-
-    private void writeObject(ObjectOutputStream oos) throws IOException {
-        oos.defaultWriteObject();
-        oos.writeObject(new ImageIcon(image));
-    }
-
-    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
-        ois.defaultReadObject();
-        ImageIcon imageIcon = (ImageIcon) ois.readObject();
-        image = imageIcon.getImage();
-    }
-
-    public void lock() {
-        lock = true;
-    }
-
-    public void unlock() {
-        lock = false;
-    }
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import javax.swing.ImageIcon;
+
+public class Furniture implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String name;
+    private int x, y, width, height; 
+    int imgwidth, imgheight;
+    private transient Image image;
+    private transient AssetRegistry.Asset asset; // Saved in place of the image; looked up on first save if not set
+    boolean lock = false;
+    private boolean selected;
+    private static final int HANDLE_SIZE = 8;
+    static final int HANDLE_REACH = HANDLE_SIZE; // How far the hit area of the handles reaches past the outline
+    private static final Color HANDLE_COLOR = new Color(41, 128, 185);
+    private static final Color HANDLE_BORDER_COLOR = new Color(52, 152, 219);
+    private static final Color SELECTED_BACKGROUND = new Color(255, 255, 255, 128); // Semi-transparent white
+    private static final Stroke SELECTED_BORDER_STROKE = new BasicStroke(2);
+    private static final Stroke BORDER_STROKE = new BasicStroke(1);
+    private int rotation = 0;
+    private transient Room room; // The room whose furniture list holds this piece, maintained by Room
+    // Reused for this piece's handles; the copy in a snapshot has its own, so the EDT and the renderer never share one
+    private transient Ellipse2D.Double handleShape;
+
+    public Furniture(String name, int x, int y, ImageIcon imageIcon) {
+        this.name = name;
+        this.x = x;
+        this.y = y;
+        this.image = imageIcon.getImage();
+        this.imgwidth = imageIcon.getIconWidth();
+        this.imgheight = imageIcon.getIconHeight();
+        this.width = imgwidth;
+        this.height = imgheight;
+        this.selected = false;
+    }
+
+    public Furniture(String name, ImageIcon imageIcon) {
+        this(name, 0, 0, imageIcon);
+    }
+
+    public Furniture(String name, AssetRegistry.Asset asset) {
+        this(name, 0, 0, new ImageIcon(asset.getImage()));
+        this.asset = asset;
+    }
+
+    /**
+     * Copies another piece of furniture, sharing its image.
+     */
+    Furniture(Furniture other) {
+        this.name = other.name;
+        this.x = other.x;
+        this.y = other.y;
+        this.width = other.width;
+        this.height = other.height;
+        this.image = other.image;
+        this.asset = other.asset;
+        this.imgwidth = other.imgwidth;
+        this.imgheight = other.imgheight;
+        this.lock = other.lock;
+        this.selected = other.selected;
+        this.rotation = other.rotation;
+    }
+
+    /**
+     * Recreates furniture read from a plan file.
+     */
+    Furniture(String name, AssetRegistry.Asset asset, int imgwidth, int imgheight,
+              int x, int y, int width, int height, int rotation, boolean lock) {
+        this.name = name;
+        this.asset = asset;
+        this.image = asset.getImage();
+        this.imgwidth = imgwidth;
+        this.imgheight = imgheight;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.rotation = rotation;
+        this.lock = lock;
+    }
+
+    public String getName() { return name; }
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public Image getImage() { return image; }
+    public boolean isSelected() { return selected; }
+
+    public void setX(int x) { this.x = x; edited(); }
+    public void setY(int y) { this.y = y; edited(); }
+    public void setWidth(int width) { this.width = width; edited(); }
+    public void setHeight(int height) { this.height = height; edited(); }
+    public void setSelected(boolean selected) { this.selected = selected; }
+    public Room getRoom() { return room; }
+
+    /**
+     * Returns the asset this furniture's image is saved as, registering the image first if needed.
+     */
+    AssetRegistry.Asset getAsset() {
+        if (asset == null) {
+            asset = AssetRegistry.shared().forImage(image);
+        }
+        return asset;
+    }
+    void setRoom(Room room) { this.room = room; }
+
+    /**
+     * Tells the room holding this piece that its furniture changed, so the next save and journal commit include it.
+     */
+    private void edited() {
+        if (room != null) {
+            room.furnitureEdited();
+        }
+    }
+
+    boolean contains(int px, int py) {
+        return px >= x && px <= x + width && py >= y && py <= y + height;
+    }
+
+    public void move(int deltaX, int deltaY) {
+        if(lock) return;
+        this.x += deltaX;
+        this.y += deltaY;
+        edited();
+    }
+
+    public void resize(int newWidth, int newHeight) {
+        if(lock) return;
+        this.width = newWidth;
+        this.height = newHeight;
+        edited();
+    }
+
+    public void rotateFurniture(int bydegrees) {
+        this.rotation += bydegrees;
+        this.rotation %= 360;
+
+        // swap width and height on every quarter turn
+        if (bydegrees % 180 != 0) {
+            int temp = width;
+            width = height;
+            height = temp;
+        }
+        edited();
+    }
+
+    /**
+     * Allocation-free check of whether this furniture, including its handles, overlaps the clip.
+     */
+    boolean intersectsPaintArea(Rectangle clip) {
+        return x - HANDLE_SIZE < clip.x + clip.width && clip.x < x + width + HANDLE_SIZE
+                && y - HANDLE_SIZE < clip.y + clip.height && clip.y < y + height + HANDLE_SIZE;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    public void draw(Graphics2D g2d) {
+        draw(g2d, g2d.getTransform().getScaleX());
+    }
+
+    /**
+     * Draws the furniture, blitting its image from the shared sprite cache
+     * pre-rendered at the given device scale and the current rotation.
+     *
+     * @param deviceScale Horizontal scale from user space to device pixels
+     */
+    public void draw(Graphics2D g2d, double deviceScale) {
+        // Draw selection rectangle if selected
+        if (selected && !lock) {
+            // Draw white background
+            g2d.setColor(SELECTED_BACKGROUND);
+            g2d.fillRect(x, y, width, height);
+            
+            // Draw border
+            g2d.setColor(Color.BLACK);
+            g2d.setStroke(SELECTED_BORDER_STROKE);
+            g2d.drawRect(x, y, width, height);
+
+            // Draw resize handles
+            drawResizeHandles(g2d);
+        } else {
+            // Draw border for unselected state
+            g2d.setColor(Color.BLACK);
+            g2d.setStroke(BORDER_STROKE);
+            g2d.drawRect(x, y, width, height);
+        }
+
+        // Draw the furniture image, rotated with the furniture
+        boolean quarterTurn = rotation % 180 != 0;
+        int rotatedWidth = quarterTurn ? imgheight : imgwidth;
+        int rotatedHeight = quarterTurn ? imgwidth : imgheight;
+        int imgX = x + (width - rotatedWidth) / 2;
+        int imgY = y + (height - rotatedHeight) / 2;
+        Image sprite = SpriteCache.shared().get(g2d.getDeviceConfiguration(), image, imgwidth, imgheight, rotation, deviceScale);
+        g2d.drawImage(sprite, imgX, imgY, rotatedWidth, rotatedHeight, null);
+    }
+
+    private void drawResizeHandles(Graphics2D g2d) {
+        // Enable anti-aliasing for smoother handle rendering
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        if (handleShape == null) {
+            handleShape = new Ellipse2D.Double();
+        }
+        // Draw each handle
+        for (Handle handle : Handle.ALL) {
+            handleShape.setFrame(
+                handle.centerX(x, width) - HANDLE_SIZE/2,
+                handle.centerY(y, height) - HANDLE_SIZE/2,
+                HANDLE_SIZE,
+                HANDLE_SIZE
+            );
+            g2d.setColor(HANDLE_COLOR);
+            g2d.fill(handleShape);
+            g2d.setColor(HANDLE_BORDER_COLOR);
+            g2d.setStroke(BORDER_STROKE);
+            g2d.draw(handleShape);
+        }
+    }
+
+    boolean containsHandle(int px, int py) {
+        return getHandleAt(px, py) != null;
+    }
+
+    /**
+     * Returns the handle under the given point, or null if there is none.
+     * Furniture handles are hit up to HANDLE_SIZE away, twice their drawn radius, since they are small.
+     */
+    Handle getHandleAt(int px, int py) {
+        return Handle.hitTest(px, py, x, y, width, height, HANDLE_SIZE);
+    }
+
+    private void writeObject(ObjectOutputStream oos) throws IOException {
+        oos.defaultWriteObject();
+        // Written once per stream; later furniture with the same asset only writes a back-reference
+        oos.writeObject(getAsset());
+    }
+
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        Object stored = ois.readObject();
+        if (stored instanceof ImageIcon) {
+            // Older plans stored every piece's pixels; identical images are merged into one asset on the next save
+            image = ((ImageIcon) stored).getImage();
+        } else {
+            asset = (AssetRegistry.Asset) stored;
+            image = asset.getImage();
+        }
+    }
+
+    public void lock() {
+        lock = true;
+        edited();
+    }
+
+    public void unlock() {
+        lock = false;
+        edited();
+    }
 }
\ No newline at end of file
@@ -1,40 +1,47 @@
-import java.awt.*;
-import javax.swing.*;
-
-public class FurnitureCatalogPanel extends JPanel {
-    private Furniture selectedFurniture;
-
-    public FurnitureCatalogPanel() {
-        setLayout(new GridLayout(0, 1));
-
-        // Adding furniture items
-        addFurnitureToCatalog("Sofa", "Pngs/Furniture/sofa.png");
-        addFurnitureToCatalog("Table", "Pngs/Furniture/table.png");
-        addFurnitureToCatalog("Chair", "Pngs/Furniture/armchair.png");
-        addFurnitureToCatalog("Bed", "Pngs/Furniture/bed.png");
-        addFurnitureToCatalog("Dining Set", "Pngs/Furniture/Dining Set.png");
-
-        addFurnitureToCatalog("Commode","Pngs/Furniture/commode.png");
-        addFurnitureToCatalog("Washbasin","Pngs/Furniture/washbasin.png");
-        addFurnitureToCatalog("Shower","Pngs/Furniture/shower.png");
-        addFurnitureToCatalog("Kitchen Sink","Pngs/Furniture/sink.png");
-        addFurnitureToCatalog("Stove","Pngs/Furniture/stove.png");
-
-    }
-
-    private void addFurnitureToCatalog(String name, String imagePath) {
-        ImageIcon image = new ImageIcon(new ImageIcon(getClass().getResource(imagePath)).getImage().getScaledInstance(50, 50, Image.SCALE_SMOOTH));
-        JButton furnitureButton = new JButton(name, image);
-        furnitureButton.addActionListener(e -> selectedFurniture = new Furniture(name, image));
-        add(furnitureButton);
-    }
-
-    public Furniture showFurnitureCatalog() {
-        int option = JOptionPane.showConfirmDialog(this, this, "Furniture Catalog", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
-        if (option == JOptionPane.OK_OPTION) {
-            return selectedFurniture;
-        } else {
-            return null;
-        }
-    }
+import java.awt.*;
+import java.util.HashMap;
+import javax.swing.*;
+
+public class FurnitureCatalogPanel extends JPanel {
+    private static final int ICON_SIZE = 50;
+    // Decoded catalog images, shared by every catalog instance
+    private static final HashMap<String, Image> SOURCE_IMAGES = new HashMap<>();
+    private Furniture selectedFurniture;
+
+    public FurnitureCatalogPanel() {
+        setLayout(new GridLayout(0, 1));
+
+        // Adding furniture items
+        addFurnitureToCatalog("Sofa", "Pngs/Furniture/sofa.png");
+        addFurnitureToCatalog("Table", "Pngs/Furniture/table.png");
+        addFurnitureToCatalog("Chair", "Pngs/Furniture/armchair.png");
+        addFurnitureToCatalog("Bed", "Pngs/Furniture/bed.png");
+        addFurnitureToCatalog("Dining Set", "Pngs/Furniture/Dining Set.png");
+
+        addFurnitureToCatalog("Commode","Pngs/Furniture/commode.png");
+        addFurnitureToCatalog("Washbasin","Pngs/Furniture/washbasin.png");
+        addFurnitureToCatalog("Shower","Pngs/Furniture/shower.png");
+        addFurnitureToCatalog("Kitchen Sink","Pngs/Furniture/sink.png");
+        addFurnitureToCatalog("Stove","Pngs/Furniture/stove.png");
+
+    }
+
+    private void addFurnitureToCatalog(String name, String imagePath) {
+        Image source = SOURCE_IMAGES.computeIfAbsent(imagePath, path -> new ImageIcon(getClass().getResource(path)).getImage());
+        // Registered under the catalog path so saved plans refer to the image instead of copying it
+        AssetRegistry.Asset asset = AssetRegistry.shared().get(imagePath + "@" + ICON_SIZE,
+                () -> SpriteCache.shared().get(null, source, ICON_SIZE, ICON_SIZE, 0, 1));
+        JButton furnitureButton = new JButton(name, new ImageIcon(asset.getImage()));
+        furnitureButton.addActionListener(e -> selectedFurniture = new Furniture(name, asset));
+        add(furnitureButton);
+    }
+
+    public Furniture showFurnitureCatalog() {
+        int option = JOptionPane.showConfirmDialog(this, this, "Furniture Catalog", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (option == JOptionPane.OK_OPTION) {
+            return selectedFurniture;
+        } else {
+            return null;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+/**
+ * The eight resize handles around a room or piece of furniture.
+ * Each handle knows where it sits on the outline and how a drag moves each side,
+ * so hit-testing and resizing work the same way for every handle without
+ * branching on the direction.
+ */
+public enum Handle {
+    // Corners come first so they win where a corner and a side handle overlap on small items
+    TOP_LEFT(0, 0, 1, 1, -1, -1),
+    TOP_RIGHT(2, 0, 0, 1, 1, -1),
+    BOTTOM_LEFT(0, 2, 1, 0, -1, 1),
+    BOTTOM_RIGHT(2, 2, 0, 0, 1, 1),
+    TOP(1, 0, 0, 1, 0, -1),
+    BOTTOM(1, 2, 0, 0, 0, 1),
+    LEFT(0, 1, 1, 0, -1, 0),
+    RIGHT(2, 1, 0, 0, 1, 0);
+
+    static final Handle[] ALL = values(); // values() clones the array on every call
+
+    private final int anchorX, anchorY; // Position on the outline in half-widths and half-heights
+    private final int xPerDx, yPerDy, widthPerDx, heightPerDy; // How a drag of (dx, dy) changes the bounds
+
+    Handle(int anchorX, int anchorY, int xPerDx, int yPerDy, int widthPerDx, int heightPerDy) {
+        this.anchorX = anchorX;
+        this.anchorY = anchorY;
+        this.xPerDx = xPerDx;
+        this.yPerDy = yPerDy;
+        this.widthPerDx = widthPerDx;
+        this.heightPerDy = heightPerDy;
+    }
+
+    /**
+     * Returns the x-coordinate of this handle's centre on a rectangle.
+     */
+    int centerX(int x, int width) {
+        return x + width * anchorX / 2;
+    }
+
+    /**
+     * Returns the y-coordinate of this handle's centre on a rectangle.
+     */
+    int centerY(int y, int height) {
+        return y + height * anchorY / 2;
+    }
+
+    int resizeX(int x, int dx) {
+        return x + xPerDx * dx;
+    }
+
+    int resizeY(int y, int dy) {
+        return y + yPerDy * dy;
+    }
+
+    int resizeWidth(int width, int dx) {
+        return width + widthPerDx * dx;
+    }
+
+    int resizeHeight(int height, int dy) {
+        return height + heightPerDy * dy;
+    }
+
+    /**
+     * Returns the first handle of the rectangle whose circular hit area strictly
+     * contains the point, or null if the point is on no handle.
+     *
+     * @param radius Radius of each handle's hit area
+     */
+    static Handle hitTest(int px, int py, int x, int y, int width, int height, int radius) {
+        long radiusSquared = (long) radius * radius;
+        for (Handle handle : ALL) {
+            long dx = px - handle.centerX(x, width);
+            long dy = py - handle.centerY(y, height);
+            if (dx * dx + dy * dy < radiusSquared) {
+                return handle;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,130 @@
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared cache of shaped label text.
+ * Labels repeat heavily across a plan (many rooms share a size), so each distinct
+ * (text, font, render context) is laid out into a GlyphVector once and reused.
+ * Entries are evicted least-recently-used once the cache is full.
+ */
+public class LabelCache {
+    private static final int DEFAULT_MAX_ENTRIES = 4096;
+    private static final LabelCache SHARED = new LabelCache(DEFAULT_MAX_ENTRIES);
+
+    private final LinkedHashMap<Key, Label> labels;
+    private final Key lookupKey = new Key(); // Reused so cache hits don't allocate
+    private final HashMap<Integer, String> dimensions = new HashMap<>(); // Formatted lengths for dimensionMeasure
+    private double dimensionMeasure = Double.NaN;
+    private long hits = 0, misses = 0;
+
+    /**
+     * Shaped text together with its advance, so callers can centre it without measuring.
+     */
+    public static final class Label {
+        public final GlyphVector glyphs;
+        public final float advance;
+
+        private Label(GlyphVector glyphs) {
+            this.glyphs = glyphs;
+            this.advance = (float) glyphs.getLogicalBounds().getWidth();
+        }
+    }
+
+    public LabelCache(int maxEntries) {
+        labels = new LinkedHashMap<>(256, 0.75f, true) { // Access order for LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Label> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static LabelCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the text laid out in the given font for the given render context.
+     */
+    public synchronized Label get(String text, Font font, FontRenderContext frc) {
+        lookupKey.set(text, font, frc);
+        Label label = labels.get(lookupKey);
+        if (label != null) {
+            hits++;
+            return label;
+        }
+        misses++;
+
+        label = new Label(font.createGlyphVector(frc, text));
+        Key key = new Key();
+        key.set(text, font, frc);
+        labels.put(key, label);
+        return label;
+    }
+
+    /**
+     * Formats a length in pixels as feet and inches, e.g. 12'6''.
+     *
+     * @param length  Length in pixels
+     * @param measure Pixels per inch
+     */
+    public synchronized String formatFeetInches(int length, double measure) {
+        if (measure != dimensionMeasure) {
+            dimensions.clear(); // Every cached string changes with the scale
+            dimensionMeasure = measure;
+        }
+        String text = dimensions.get(length);
+        if (text == null) {
+            text = (int)(length/(measure*12)) + "'" + ((int)(length/measure))%12 + "''";
+            dimensions.put(length, text);
+        }
+        return text;
+    }
+
+    public synchronized void clear() {
+        labels.clear();
+        dimensions.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return labels.size();
+    }
+
+    private static final class Key {
+        String text;
+        Font font;
+        FontRenderContext frc;
+
+        void set(String text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return text.equals(other.text) && font.equals(other.font) && frc.equals(other.frc);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = text.hashCode();
+            hash = 31 * hash + font.hashCode();
+            return 31 * hash + frc.hashCode();
+        }
+    }
+}
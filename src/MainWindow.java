@@ -11,6 +11,7 @@ public class MainWindow extends JFrame implements ActionListener {
     public RoomDetailsDialog roomDialog;
     public JPanel leftPanel;
     public final FloorPlanPanel drawingPanel;
+    final EditJournal journal; // Records this window's edits for recovery after a crash; closed when it is disposed
     public JTable roomTable;
     public RoomTableModel tableModel;
     public JScrollPane tableScrollPane;
@@ -18,6 +19,8 @@ public class MainWindow extends JFrame implements ActionListener {
     //public FurnitureCatalogPanel furnitureCatalog;
     JLabel totalAreaLabel;
     JPanel infoPanel = new JPanel();
+    PlanFile planFile; // The file this plan was last saved to or loaded from, if any
+    PlanFormat.Compression compression = PlanFormat.Compression.FAST; // Chosen when saving as
     JLabel addRoom = new JLabel("CLICK ON THE FLOOR PANEL TO POSITION THE ROOM");
 
 
@@ -50,6 +53,12 @@ public class MainWindow extends JFrame implements ActionListener {
     public void addNewRoom( String roomName, String roomType, int width, int height,  ArrayList<Furniture> furnitureList) {
         Room newRoom = new Room(0, 0, width, height, roomName, roomType);
         newRoom.lock = globalLock;
+        if (furnitureList != null) {
+            // Positions are relative to the room, which starts at the origin until it is placed
+            for (Furniture furniture : furnitureList) {
+                newRoom.addFurniture(furniture);
+            }
+        }
 
         drawingPanel.setRoomToPlace(newRoom);
 
@@ -65,10 +74,10 @@ public class MainWindow extends JFrame implements ActionListener {
     }
 
     public void deleteRoom(int index) {
-        drawingPanel.getRooms().remove(index);
+        drawingPanel.removeRoom(drawingPanel.getRooms().get(index));
         updateRoomTable();
         updateTotalAreaLabel();
-        drawingPanel.repaint();
+        drawingPanel.planChanged();
     }
 
     public void editRoom(int index) {
@@ -80,13 +89,13 @@ public class MainWindow extends JFrame implements ActionListener {
         if (newName != null && !newName.trim().isEmpty()) {
             room.name = newName.trim();
             updateRoomTable();
-            drawingPanel.repaint();
+            drawingPanel.planChanged();
         }
 
         if(newType.equals("")){}
         else{
             room.type = newType;
-            repaint();
+            drawingPanel.planChanged();
         }
     }
 
@@ -96,7 +105,7 @@ public class MainWindow extends JFrame implements ActionListener {
         for (Room room : drawingPanel.getRooms()) {
             room.lockRoom();
         }
-        repaint();
+        drawingPanel.planChanged();
     }
 
     public void unlockAllRooms() {
@@ -112,7 +121,7 @@ public class MainWindow extends JFrame implements ActionListener {
         }
         globalLock = false;
         lockRoomsButton.setText("Lock Layout");
-        repaint();
+        drawingPanel.planChanged();
     }
 
     public void checkLock(){
@@ -192,6 +201,8 @@ public class MainWindow extends JFrame implements ActionListener {
         leftPanel.setLayout(null); // Set to null layout for manual positioning
 
         drawingPanel = new FloorPlanPanel(this);
+        journal = new EditJournal(drawingPanel::getRooms);
+        drawingPanel.journal = journal;
         drawingPanel.setBackground(new Color(211, 211, 211, 255)); //Grey color
         drawingPanel.setLayout(null); // For custom drawing and room placements
         drawingPanel.setBorder(BorderFactory.createEtchedBorder());//panel Border
@@ -268,11 +279,14 @@ public class MainWindow extends JFrame implements ActionListener {
                 // Handle the user's choice
                 switch (option) {
                     case JOptionPane.YES_OPTION:
+                        dispose();
                         System.exit(0);
                         break;
                     case JOptionPane.NO_OPTION:
-                        FileHandler.save(drawingPanel.rooms,MainWindow.this);
-                        System.exit(0);
+                        FileHandler.save(drawingPanel.getRooms(), MainWindow.this, () -> {
+                            dispose();
+                            System.exit(0);
+                        });
                         break;
                     case JOptionPane.CANCEL_OPTION:
                         break;
@@ -288,6 +302,15 @@ public class MainWindow extends JFrame implements ActionListener {
         this.setVisible(true);
     }
 
+    /**
+     * Closes the window's journal, as the plan no longer needs recovering, along with the window.
+     */
+    @Override
+    public void dispose() {
+        journal.close();
+        super.dispose();
+    }
+
     public void updateTotalAreaLabel() {
         int totalArea = 0;
         for (Room room : drawingPanel.getRooms()) {
@@ -309,10 +332,10 @@ public class MainWindow extends JFrame implements ActionListener {
                 FileHandler.loadFromFile();
                 break;
             case "Save":
-                FileHandler.save(drawingPanel.rooms,this);
+                FileHandler.save(drawingPanel.getRooms(),this);
                 break;
             case "Save As...":
-                FileHandler.saveAs(drawingPanel.rooms, this);
+                FileHandler.saveAs(drawingPanel.getRooms(), this);
                 break;
 //            case "Move":
 //                // Handle move action
@@ -333,11 +356,14 @@ public class MainWindow extends JFrame implements ActionListener {
                 // Handle the user's choice
                 switch (option) {
                     case JOptionPane.YES_OPTION:
+                        dispose();
                         System.exit(0);
                         break;
                     case JOptionPane.NO_OPTION:
-                        FileHandler.save(drawingPanel.rooms,this);
-                        System.exit(0);
+                        FileHandler.save(drawingPanel.getRooms(), this, () -> {
+                            dispose();
+                            System.exit(0);
+                        });
                         break;
                     case JOptionPane.CANCEL_OPTION:
                         break;
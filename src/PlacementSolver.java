@@ -0,0 +1,110 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Finds the collision-free position nearest to where a room should go.
+ * The nearest free spot always lines up, on each axis, either with the requested
+ * position or with a side of some room it would touch, so only those candidate
+ * coordinates are tried, closest first. The search starts with the rooms close
+ * to the requested spot and widens until the answer is provably the nearest.
+ */
+public class PlacementSolver {
+    private final SpatialGrid<Room> index;
+    private final ArrayList<Room> obstacles = new ArrayList<>();
+    private final ArrayList<Room> overlapQuery = new ArrayList<>();
+
+    public PlacementSolver(SpatialGrid<Room> index) {
+        this.index = index;
+    }
+
+    /**
+     * Returns the top-left corner closest to (x, y), by straight-line distance, at which
+     * a width x height room overlaps no room in the index other than {@code moving}.
+     * Ties are broken the same way every time, so the answer is deterministic.
+     *
+     * @param moving The room being placed if it is already in the index, or null
+     */
+    public Point findNearestFree(Room moving, int x, int y, int width, int height) {
+        if (isFree(moving, x, y, width, height)) {
+            return new Point(x, y);
+        }
+        long radius = Math.max(width, height);
+        while (true) {
+            obstacles.clear();
+            index.query(clamp(x - radius), clamp(y - radius), clamp(width + 2 * radius), clamp(height + 2 * radius), obstacles);
+            int[] xs = candidates(x, width, true);
+            int[] ys = candidates(y, height, false);
+
+            Point best = null;
+            long bestDistance = Long.MAX_VALUE;
+            for (int cx : xs) {
+                long dx = (long) cx - x;
+                if (dx * dx >= bestDistance) {
+                    break; // Candidates are sorted by distance, so nothing further can be closer
+                }
+                for (int cy : ys) {
+                    long dy = (long) cy - y;
+                    long distance = dx * dx + dy * dy;
+                    if (distance >= bestDistance) {
+                        break;
+                    }
+                    if (isFree(moving, cx, cy, width, height)) {
+                        best = new Point(cx, cy);
+                        bestDistance = distance;
+                        break; // The closest free spot in this column
+                    }
+                }
+            }
+
+            // Every room that could bound a spot within the radius was considered
+            boolean allConsidered = obstacles.size() >= index.size();
+            if (best != null && (bestDistance <= radius * radius || allConsidered)) {
+                return best;
+            }
+            radius *= 2;
+        }
+    }
+
+    /**
+     * Candidate coordinates on one axis: the requested one, and those that put the room
+     * flush against either side of a nearby obstacle, ordered by distance from the request.
+     */
+    private int[] candidates(int requested, int size, boolean horizontal) {
+        int[] values = new int[obstacles.size() * 2 + 1];
+        int count = 0;
+        values[count++] = requested;
+        for (Room obstacle : obstacles) {
+            int start = horizontal ? obstacle.x : obstacle.y;
+            int length = horizontal ? obstacle.width : obstacle.height;
+            values[count++] = start - size;
+            values[count++] = start + length;
+        }
+        // Closest first, with the lower coordinate first on ties; duplicates are harmless.
+        // Sorted as distance:coordinate keys, which fits as long as coordinates stay within +-2^30
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (Math.abs((long) values[i] - requested) << 32) | ((long) values[i] - Integer.MIN_VALUE);
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < count; i++) {
+            values[i] = (int) ((keys[i] & 0xffffffffL) + Integer.MIN_VALUE);
+        }
+        return values;
+    }
+
+    private boolean isFree(Room moving, int x, int y, int width, int height) {
+        overlapQuery.clear();
+        index.query(x, y, width, height, overlapQuery);
+        for (Room room : overlapQuery) {
+            if (room != moving && room.overlaps(x, y, width, height)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, value));
+    }
+}
@@ -0,0 +1,454 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The file a window's plan is saved to, kept up to date one room at a time.
+ * <p>
+ * Each save is prepared on the EDT, which compares every room with what it held
+ * when it was last saved and copies only the rooms that changed. The saver thread then
+ * appends their blocks and a new index to the file, forces them to disk and only then
+ * writes the header slot not in use to point at the new index. The file is changed in
+ * place rather than replaced, but a save that fails or is cut short, even halfway through
+ * the slot, leaves the other slot and the index it points at as they were. The blocks of
+ * rooms that did not change stay where they are, compressed however they were when
+ * written, so one file can mix compression modes.
+ * <p>
+ * Once less than half of the file is still in use it is compacted: the live blocks are
+ * copied into a new file that replaces the old one. The first save, and any save after the
+ * file was changed by someone else or a save failed, writes the whole plan instead.
+ */
+public class PlanFile {
+    private static final long COMPACT_MIN_SIZE = 1 << 20; // Smaller files are never worth compacting
+
+    final Path path;
+
+    // Owned by the EDT
+    private final IdentityHashMap<Room, Saved> saved = new IdentityHashMap<>();
+    private int nextId;
+    private boolean written; // Whether the file holds the saved rooms once the saves in flight are written
+    private int pending;     // Saves handed to the saver thread and not yet reported back
+
+    // Owned by the saver thread
+    private final BlockCodec codec = new BlockCodec();
+    private HashMap<Integer, PlanFormat.Block> blocks = new HashMap<>(); // By room id
+    private final ArrayList<String> assetIds = new ArrayList<>();
+    private final ArrayList<PlanFormat.Block> assets = new ArrayList<>();
+    private final HashMap<String, Integer> assetPositions = new HashMap<>();
+    private boolean indexLoaded;
+    private long sequence; // Of the header slot in use
+    private boolean broken; // An earlier save failed, so the blocks no longer describe the file
+    private long fileSize;
+
+    // Written by the saver thread, read by the EDT when no save is in flight
+    private volatile long savedSize = -1;
+    private volatile long savedModified;
+
+    /**
+     * What a room held when it was last saved, compared field by field so that no edit goes unnoticed.
+     */
+    private static final class Saved {
+        final int id;
+        int x, y, width, height;
+        boolean lock;
+        String name, type;
+        int fixtureEdits, furnitureEdits;
+
+        Saved(int id, Room room) {
+            this.id = id;
+            record(room);
+        }
+
+        void record(Room room) {
+            x = room.x;
+            y = room.y;
+            width = room.width;
+            height = room.height;
+            lock = room.lock;
+            name = room.name;
+            type = room.type;
+            fixtureEdits = room.getFixtureEdits();
+            furnitureEdits = room.getFurnitureEdits();
+        }
+
+        boolean matches(Room room) {
+            return x == room.x && y == room.y && width == room.width && height == room.height
+                    && lock == room.lock && Objects.equals(name, room.name) && Objects.equals(type, room.type)
+                    && fixtureEdits == room.getFixtureEdits() && furnitureEdits == room.getFurnitureEdits();
+        }
+    }
+
+    /**
+     * What one save writes: the order of every room by id, and copies of the rooms to write.
+     */
+    static final class Save {
+        final boolean full;   // Every room is in rooms, and the file is written anew
+        final int[] order;    // Id of every room, in plan order
+        final int[] ids;      // Id of each room in rooms
+        final List<Room> rooms;
+        final PlanFormat.Compression compression; // Of the blocks this save writes; blocks already in the file stay as they are
+
+        Save(boolean full, int[] order, int[] ids, List<Room> rooms, PlanFormat.Compression compression) {
+            this.full = full;
+            this.order = order;
+            this.ids = ids;
+            this.rooms = rooms;
+            this.compression = compression;
+        }
+    }
+
+    PlanFile(Path path) {
+        this.path = path.toAbsolutePath();
+    }
+
+    /**
+     * Returns the file a plan is being loaded from, so that the next save only writes the
+     * rooms that changed since. Must be called on the EDT, with the rooms as first read.
+     *
+     * @param rooms    The rooms in the order they were read
+     * @param size     Size of the file before it was read
+     * @param modified When the file was last modified before it was read, in milliseconds
+     */
+    static PlanFile forLoadedPlan(Path path, List<Room> rooms, long size, long modified) {
+        PlanFile file = new PlanFile(path);
+        for (int i = 0; i < rooms.size(); i++) {
+            file.saved.put(rooms.get(i), new Saved(i, rooms.get(i)));
+        }
+        file.nextId = rooms.size();
+        file.written = true;
+        file.savedSize = size;
+        file.savedModified = modified;
+        return file;
+    }
+
+    /**
+     * Adds what was read later to a loaded room. The room still counts as saved unless
+     * it was edited before it was filled in. Must be called on the EDT.
+     */
+    void fillIn(Room room, Runnable fill) {
+        Saved entry = saved.get(room);
+        boolean unchanged = entry != null && entry.matches(room);
+        fill.run();
+        if (unchanged) {
+            entry.record(room);
+        }
+    }
+
+    /**
+     * Works out what the next save has to write and copies it, so the plan can keep being
+     * edited while it is written. Must be called on the EDT; the save must then be passed
+     * to {@link #write} and its outcome to {@link #saveFinished}.
+     */
+    Save prepare(List<Room> rooms, PlanFormat.Compression compression) {
+        if (written && pending == 0 && changedOnDisk()) {
+            written = false;
+        }
+        boolean full = !written;
+        if (full) {
+            saved.clear();
+            nextId = 0;
+        }
+
+        int[] order = new int[rooms.size()];
+        int[] ids = new int[rooms.size()];
+        ArrayList<Room> changed = new ArrayList<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            Room room = rooms.get(i);
+            Saved entry = saved.get(room);
+            boolean roomChanged = true;
+            if (entry == null) {
+                entry = new Saved(nextId++, room);
+                saved.put(room, entry);
+            } else if (!entry.matches(room)) {
+                entry.record(room);
+            } else {
+                roomChanged = false;
+            }
+            order[i] = entry.id;
+            if (roomChanged) {
+                ids[changed.size()] = entry.id;
+                changed.add(room.snapshot());
+            }
+        }
+        if (saved.size() > rooms.size()) {
+            // Forget rooms removed from the plan
+            Set<Room> present = Collections.newSetFromMap(new IdentityHashMap<>(rooms.size() * 4 / 3 + 1));
+            present.addAll(rooms);
+            saved.keySet().retainAll(present);
+        }
+        written = true;
+        pending++;
+        return new Save(full, order, Arrays.copyOf(ids, changed.size()), changed, compression);
+    }
+
+    /**
+     * Reports the outcome of a save to the EDT. After a failure the next save writes the whole plan.
+     */
+    void saveFinished(boolean succeeded) {
+        pending--;
+        if (!succeeded) {
+            written = false;
+        }
+    }
+
+    private boolean changedOnDisk() {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.size() != savedSize || attributes.lastModifiedTime().toMillis() != savedModified;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Writes a prepared save. Called on the saver thread, one save at a time and in the order they were prepared.
+     */
+    void write(Save save) throws IOException {
+        try {
+            if (save.full) {
+                writeAll(save);
+            } else if (broken) {
+                throw new IOException("An earlier save of " + path + " failed");
+            } else {
+                writeChanged(save);
+            }
+            broken = false;
+        } catch (IOException | RuntimeException e) {
+            broken = true;
+            throw e;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        savedSize = attributes.size();
+        savedModified = attributes.lastModifiedTime().toMillis();
+    }
+
+    private void writeAll(Save save) throws IOException {
+        PlanFormat.BlockIndex index = PlanFormat.writeBlocks(save.rooms, path, codec, save.compression);
+        adopt(index, save.ids);
+        fileSize = Files.size(path);
+    }
+
+    /**
+     * Takes over the blocks of an index whose rooms have the given ids.
+     */
+    private void adopt(PlanFormat.BlockIndex index, int[] ids) {
+        blocks = new HashMap<>(ids.length * 4 / 3 + 1);
+        for (int i = 0; i < ids.length; i++) {
+            blocks.put(ids[i], index.rooms.get(i));
+        }
+        assetIds.clear();
+        assets.clear();
+        assetPositions.clear();
+        for (int i = 0; i < index.assets.size(); i++) {
+            assetIds.add(index.assetIds.get(i));
+            assets.add(index.assets.get(i));
+            assetPositions.put(index.assetIds.get(i), i);
+        }
+        sequence = index.sequence;
+        indexLoaded = true;
+    }
+
+    /**
+     * Reads the index of the file as it is on disk.
+     */
+    private void loadIndex() throws IOException {
+        PlanFormat.BlockIndex loaded;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            loaded = PlanFormat.readIndex(channel, codec);
+        }
+        // Rooms of a loaded plan are numbered in file order
+        int[] ids = new int[loaded.rooms.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        adopt(loaded, ids);
+    }
+
+    private void writeChanged(Save save) throws IOException {
+        PlanFormat.BlockIndex index;
+        long liveBytes;
+        if (!indexLoaded) {
+            loadIndex();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            fileSize = channel.size();
+
+            // New images and changed rooms go after everything already in the file, old index included
+            ByteArrayOutputStream appended = new ByteArrayOutputStream();
+            ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+            for (int i = 0; i < save.rooms.size(); i++) {
+                Room room = save.rooms.get(i);
+                for (Furniture furniture : room.getFurnitureList()) {
+                    AssetRegistry.Asset asset = furniture.getAsset();
+                    if (!assetPositions.containsKey(asset.getId())) {
+                        byte[] png = asset.getPng();
+                        assetPositions.put(asset.getId(), assets.size());
+                        assetIds.add(asset.getId());
+                        assets.add(PlanFormat.writeBlock(png, png.length, fileSize + appended.size(), codec, save.compression, appended));
+                    }
+                }
+                PlanFormat.encodeRoom(room, furniture -> assetPositions.get(furniture.getAsset().getId()), record);
+                blocks.put(save.ids[i], PlanFormat.writeBlock(record.toByteArray(), record.size(), fileSize + appended.size(), codec, save.compression, appended));
+            }
+
+            index = indexOf(save.order);
+            index.sequence = sequence + 1;
+            long indexOffset = fileSize + appended.size();
+            ByteBuffer slot = PlanFormat.writeIndex(index, indexOffset, codec, save.compression, appended);
+            PlanFormat.writeFully(channel, ByteBuffer.wrap(appended.toByteArray()), fileSize);
+            channel.force(false); // The new blocks must be on disk before the header points at them
+            PlanFormat.writeFully(channel, slot, PlanFormat.slotOffset(index.sequence));
+            channel.force(false);
+            sequence = index.sequence;
+            fileSize += appended.size();
+
+            liveBytes = PlanFormat.HEADER_SIZE + fileSize - indexOffset;
+            for (PlanFormat.Block block : index.assets) {
+                liveBytes += block.length;
+            }
+            for (PlanFormat.Block block : index.rooms) {
+                liveBytes += block.length;
+            }
+        }
+        if (fileSize > 2 * liveBytes && fileSize > COMPACT_MIN_SIZE) {
+            try {
+                compact(index, save.order, save.compression);
+            } catch (IOException e) {
+                e.printStackTrace(); // The save itself is on disk; compacting is tried again on the next save
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the rooms in the given order, forgetting the blocks of rooms no longer in the plan.
+     */
+    private PlanFormat.BlockIndex indexOf(int[] order) {
+        PlanFormat.BlockIndex index = new PlanFormat.BlockIndex();
+        index.assetIds.addAll(assetIds);
+        index.assets.addAll(assets);
+        HashMap<Integer, PlanFormat.Block> live = new HashMap<>(order.length * 4 / 3 + 1);
+        for (int id : order) {
+            PlanFormat.Block block = blocks.get(id);
+            index.rooms.add(block);
+            live.put(id, block);
+        }
+        blocks = live;
+        return index;
+    }
+
+    /**
+     * Copies the live blocks of the file into a new file that then replaces it. Blocks are
+     * copied as they are stored, however they were compressed. Assets that no room refers
+     * to any more are left behind; rooms that refer to assets after them have their
+     * references renumbered and are compressed again.
+     */
+    private void compact(PlanFormat.BlockIndex index, int[] order, PlanFormat.Compression compression) throws IOException {
+        Path temp = PlanFormat.temporaryFile(path);
+        try {
+            PlanFormat.BlockIndex compacted = new PlanFormat.BlockIndex();
+            long position = PlanFormat.HEADER_SIZE;
+            long compactedSize;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                PlanFormat.writeFully(out, ByteBuffer.wrap(PlanFormat.emptyHeader()), 0);
+
+                // Number the assets still referred to in their current order, -1 for the rest
+                int[] renumbered = new int[index.assets.size()];
+                Arrays.fill(renumbered, -1);
+                for (PlanFormat.Block block : index.rooms) {
+                    ByteBuffer record = ByteBuffer.wrap(readRecord(channel, block));
+                    for (int offset : PlanFormat.assetOffsets(record.array(), block.rawLength)) {
+                        int asset = record.getInt(offset);
+                        if (asset < 0 || asset >= renumbered.length) {
+                            throw new IOException("Invalid asset " + asset);
+                        }
+                        renumbered[asset] = 0;
+                    }
+                }
+                boolean renumbering = false;
+                for (int i = 0; i < renumbered.length; i++) {
+                    if (renumbered[i] == 0) {
+                        renumbered[i] = compacted.assets.size();
+                        compacted.assetIds.add(index.assetIds.get(i));
+                        compacted.assets.add(copy(channel, index.assets.get(i), out, position));
+                        position += index.assets.get(i).length;
+                    }
+                    renumbering |= renumbered[i] != i;
+                }
+
+                ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+                for (PlanFormat.Block block : index.rooms) {
+                    ByteBuffer record = renumbering ? renumber(readRecord(channel, block), block.rawLength, renumbered) : null;
+                    if (record == null) {
+                        compacted.rooms.add(copy(channel, block, out, position));
+                        position += block.length;
+                    } else {
+                        rewritten.reset();
+                        PlanFormat.Block moved = PlanFormat.writeBlock(record.array(), block.rawLength, position, codec, compression, rewritten);
+                        PlanFormat.writeFully(out, ByteBuffer.wrap(rewritten.toByteArray()), position);
+                        compacted.rooms.add(moved);
+                        position += moved.length;
+                    }
+                }
+                ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+                ByteBuffer slot = PlanFormat.writeIndex(compacted, position, codec, compression, indexBytes);
+                PlanFormat.writeFully(out, ByteBuffer.wrap(indexBytes.toByteArray()), position);
+                out.force(true);
+                PlanFormat.writeFully(out, slot, PlanFormat.slotOffset(compacted.sequence));
+                out.force(true);
+                compactedSize = position + indexBytes.size();
+            }
+            PlanFormat.replace(temp, path);
+            adopt(compacted, order);
+            fileSize = compactedSize;
+        } finally {
+            Files.deleteIfExists(temp); // Only still there if compacting failed
+        }
+    }
+
+    private byte[] readRecord(FileChannel channel, PlanFormat.Block block) throws IOException {
+        byte[] stored = PlanFormat.readFully(channel, block.offset, block.length).array();
+        return codec.decompress(block.codec, stored, 0, block.length, block.rawLength);
+    }
+
+    /**
+     * Renumbers the asset references of a room record, or returns null if none of them change.
+     */
+    private static ByteBuffer renumber(byte[] raw, int length, int[] renumbered) throws IOException {
+        ByteBuffer record = ByteBuffer.wrap(raw);
+        boolean changed = false;
+        for (int offset : PlanFormat.assetOffsets(raw, length)) {
+            int asset = record.getInt(offset);
+            if (renumbered[asset] != asset) {
+                record.putInt(offset, renumbered[asset]);
+                changed = true;
+            }
+        }
+        return changed ? record : null;
+    }
+
+    private static PlanFormat.Block copy(FileChannel from, PlanFormat.Block block, FileChannel to, long position) throws IOException {
+        long copied = 0;
+        while (copied < block.length) {
+            long count = from.transferTo(block.offset + copied, block.length - copied, to.position(position + copied));
+            if (count <= 0) {
+                throw new IOException("Plan file block out of bounds");
+            }
+            copied += count;
+        }
+        return block.movedTo(position);
+    }
+}
@@ -0,0 +1,636 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes .plnt files.
+ * <p>
+ * Layout, all integers big-endian:
+ * <pre>
+ *   header, HEADER_SIZE bytes:  "PLNT" magic and int version, then two header slots at the
+ *                               start of the next two 512-byte sectors, each: long sequence,
+ *                               long index offset, int index length, int index CRC-32,
+ *                               byte index codec, int index raw length, int CRC-32 of the slot
+ *   blocks:                     PNG images and room records, anywhere after the header
+ *   index:                      int assetCount, then per asset: UTF id, long offset, int length, byte codec, int raw length
+ *                               int roomCount, then per room:   long offset, int length, byte codec, int raw length
+ * </pre>
+ * Every block, the index included, is compressed on its own as the codec says; see {@link BlockCodec}.
+ * The slot with the highest sequence whose CRC and index check out is the header in use.
+ * <p>
+ * Every room is a block of its own, so a save can append the rooms that changed and a new
+ * index, then point the older header slot at it, leaving the rest of the file alone; a save
+ * cut short while writing that slot leaves the other one in use. See {@link PlanFile}.
+ * <p>
+ * A room record is x, y, width, height, UTF name, UTF type, boolean lock, then
+ * int fixtureCount and per fixture: byte wall, int start, int end, UTF type,
+ * then int furnitureCount and per piece: UTF name, int asset index, imgwidth,
+ * imgheight, x, y, width, height, rotation, boolean lock. Readers skip whatever a
+ * room record holds past the fields they know, so later versions can append fields.
+ * <p>
+ * Files without the magic are read as version 1, the Java-serialized rooms written before.
+ */
+public class PlanFormat {
+    private static final byte[] MAGIC = {'P', 'L', 'N', 'T'};
+    static final int VERSION = 2;
+    private static final int SECTOR_SIZE = 512;
+    // Each slot has a sector to itself, so writing one never rewrites the other or the magic
+    static final int HEADER_SIZE = 3 * SECTOR_SIZE;
+    private static final int SLOT_SIZE = 33;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * How the blocks of a plan are compressed when it is saved. Plans are read whichever they use.
+     */
+    enum Compression {
+        NONE("None"),
+        FAST("Fast"),         // LZ
+        SMALLEST("Smallest"); // Deflate
+
+        private final String label;
+
+        Compression(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Where a block is in an indexed file, and how it is stored.
+     */
+    static final class Block {
+        final long offset;
+        final int length;    // As stored
+        final byte codec;
+        final int rawLength; // Once decompressed
+
+        Block(long offset, int length, byte codec, int rawLength) {
+            this.offset = offset;
+            this.length = length;
+            this.codec = codec;
+            this.rawLength = rawLength;
+        }
+
+        Block movedTo(long offset) {
+            return new Block(offset, length, codec, rawLength);
+        }
+    }
+
+    /**
+     * The index of an indexed file: its assets and its rooms, in plan order.
+     */
+    static final class BlockIndex {
+        long sequence; // Of the header slot the index was read from or is to be written to
+        final ArrayList<String> assetIds = new ArrayList<>();
+        final ArrayList<Block> assets = new ArrayList<>();
+        final ArrayList<Block> rooms = new ArrayList<>();
+
+        byte[] toBytes() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 12 * rooms.size());
+            DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                out.writeInt(assets.size());
+                for (int i = 0; i < assets.size(); i++) {
+                    out.writeUTF(assetIds.get(i));
+                    writeBlock(assets.get(i), out);
+                }
+                out.writeInt(rooms.size());
+                for (Block room : rooms) {
+                    writeBlock(room, out);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // Writing to memory does not fail
+            }
+            return bytes.toByteArray();
+        }
+
+        private static void writeBlock(Block block, DataOutputStream out) throws IOException {
+            out.writeLong(block.offset);
+            out.writeInt(block.length);
+            out.writeByte(block.codec);
+            out.writeInt(block.rawLength);
+        }
+    }
+
+    /**
+     * Writes a plan to a temporary file next to the target, forces it to disk and then
+     * moves it over the target, so a failed save leaves the previous file intact.
+     */
+    public static void write(List<Room> rooms, Path path) throws IOException {
+        write(rooms, path, Compression.NONE);
+    }
+
+    public static void write(List<Room> rooms, Path path, Compression compression) throws IOException {
+        BlockCodec codec = new BlockCodec();
+        try {
+            writeBlocks(rooms, path, codec, compression);
+        } finally {
+            codec.close();
+        }
+    }
+
+    /**
+     * Writes a whole plan like {@link #write(List, Path, Compression)} and returns the index it was written with.
+     */
+    static BlockIndex writeBlocks(List<Room> rooms, Path path, BlockCodec codec, Compression compression) throws IOException {
+        Path target = path.toAbsolutePath();
+        Path temp = temporaryFile(target);
+        try {
+            BlockIndex index = new BlockIndex();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+                out.write(emptyHeader()); // The header slot is written last, once the index is on disk
+                long position = HEADER_SIZE;
+
+                // Each distinct image once, referred to by its position in the index
+                IdentityHashMap<AssetRegistry.Asset, Integer> assetIndex = new IdentityHashMap<>();
+                for (Room room : rooms) {
+                    for (Furniture furniture : room.getFurnitureList()) {
+                        AssetRegistry.Asset asset = furniture.getAsset();
+                        if (!assetIndex.containsKey(asset)) {
+                            byte[] png = asset.getPng();
+                            assetIndex.put(asset, index.assets.size());
+                            index.assetIds.add(asset.getId());
+                            index.assets.add(writeBlock(png, png.length, position, codec, compression, out));
+                            position += index.assets.get(index.assets.size() - 1).length;
+                        }
+                    }
+                }
+
+                ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+                for (Room room : rooms) {
+                    encodeRoom(room, furniture -> assetIndex.get(furniture.getAsset()), record);
+                    Block block = writeBlock(record.toByteArray(), record.size(), position, codec, compression, out);
+                    index.rooms.add(block);
+                    position += block.length;
+                }
+
+                ByteBuffer slot = writeIndex(index, position, codec, compression, out);
+                out.flush();
+                writeFully(channel, slot, slotOffset(index.sequence));
+                channel.force(true);
+            }
+            replace(temp, target);
+            return index;
+        } finally {
+            Files.deleteIfExists(temp); // Only still there if the save failed
+        }
+    }
+
+    static Path temporaryFile(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Compresses a block and writes it to out, at the given position in the file.
+     */
+    static Block writeBlock(byte[] raw, int length, long position, BlockCodec codec, Compression compression, OutputStream out) throws IOException {
+        byte stored = codec.compress(raw, length, compression);
+        out.write(codec.output(), 0, codec.outputLength());
+        return new Block(position, codec.outputLength(), stored, length);
+    }
+
+    /**
+     * Returns the header of a new file: the magic and version, and two slots that are not yet valid.
+     */
+    static byte[] emptyHeader() {
+        byte[] header = new byte[HEADER_SIZE];
+        ByteBuffer.wrap(header).put(MAGIC).putInt(VERSION);
+        return header;
+    }
+
+    /**
+     * Returns where the header slot of the given sequence goes. Consecutive sequences alternate
+     * between the two slots, so each save overwrites the older one.
+     */
+    static long slotOffset(long sequence) {
+        return SECTOR_SIZE * (1 + (sequence & 1));
+    }
+
+    /**
+     * Writes an index to out, at the given position in the file, and returns the header slot
+     * that points at it, to be written at {@link #slotOffset} of the index's sequence. The
+     * slot must only be written once the index is on disk.
+     */
+    static ByteBuffer writeIndex(BlockIndex index, long position, BlockCodec codec, Compression compression, OutputStream out) throws IOException {
+        byte[] raw = index.toBytes();
+        Block block = writeBlock(raw, raw.length, position, codec, compression, out);
+        CRC32 crc = new CRC32();
+        crc.update(codec.output(), 0, codec.outputLength());
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+        slot.putLong(index.sequence).putLong(block.offset).putInt(block.length).putInt((int) crc.getValue())
+                .put(block.codec).putInt(block.rawLength);
+        crc.reset();
+        crc.update(slot.array(), 0, slot.position());
+        slot.putInt((int) crc.getValue());
+        slot.rewind();
+        return slot;
+    }
+
+    /**
+     * Reads the index of an indexed file, checking it against the header. The index of
+     * the newest header slot that is intact is read.
+     */
+    static BlockIndex readIndex(FileChannel channel, BlockCodec codec) throws IOException {
+        ByteBuffer header = readFully(channel, 0, MAGIC.length + 4);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || header.getInt() != VERSION) {
+            throw new IOException("Not an indexed plan file");
+        }
+
+        ByteBuffer first = readSlot(channel, 0);
+        ByteBuffer second = readSlot(channel, 1);
+        if (first != null && second != null && second.getLong(0) > first.getLong(0)) {
+            ByteBuffer newer = second;
+            second = first;
+            first = newer;
+        }
+        IOException failure = new IOException("Plan file header is damaged");
+        for (ByteBuffer slot : new ByteBuffer[]{first, second}) {
+            if (slot == null) {
+                continue;
+            }
+            try {
+                BlockIndex index = readIndex(channel, codec, slot.getLong(8), slot.getInt(16), slot.getInt(20), slot.get(24), slot.getInt(25));
+                index.sequence = slot.getLong(0);
+                return index;
+            } catch (IOException e) {
+                failure = e; // A save cut short could only have damaged the newer slot; try the older one
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Returns one of the two header slots, or null if it does not hold a valid header.
+     */
+    private static ByteBuffer readSlot(FileChannel channel, int slot) throws IOException {
+        ByteBuffer buffer = readFully(channel, slotOffset(slot), SLOT_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, SLOT_SIZE - 4);
+        return (int) crc.getValue() == buffer.getInt(SLOT_SIZE - 4) ? buffer : null;
+    }
+
+    private static BlockIndex readIndex(FileChannel channel, BlockCodec codec, long indexOffset, int indexLength,
+                                        int indexCrc, byte indexCodec, int indexRawLength) throws IOException {
+        if (indexOffset < HEADER_SIZE || indexLength < 0 || indexRawLength < 0 || indexOffset + indexLength > channel.size()) {
+            throw new IOException("Plan file index out of bounds");
+        }
+        byte[] stored = readFully(channel, indexOffset, indexLength).array();
+        CRC32 crc = new CRC32();
+        crc.update(stored);
+        if ((int) crc.getValue() != indexCrc) {
+            throw new IOException("Plan file index is damaged");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(codec.decompress(indexCodec, stored, 0, indexLength, indexRawLength)));
+        BlockIndex index = new BlockIndex();
+        int assetCount = in.readInt();
+        for (int i = 0; i < assetCount; i++) {
+            index.assetIds.add(in.readUTF());
+            index.assets.add(readBlock(in, indexOffset));
+        }
+        int roomCount = in.readInt();
+        index.rooms.ensureCapacity(roomCount);
+        for (int i = 0; i < roomCount; i++) {
+            index.rooms.add(readBlock(in, indexOffset));
+        }
+        return index;
+    }
+
+    private static Block readBlock(DataInputStream in, long indexOffset) throws IOException {
+        long offset = in.readLong();
+        int length = in.readInt();
+        byte codec = in.readByte();
+        int rawLength = in.readInt();
+        if (offset < HEADER_SIZE || length < 0 || rawLength < 0 || offset + length > indexOffset) {
+            throw new IOException("Plan file block out of bounds");
+        }
+        return new Block(offset, length, codec, rawLength);
+    }
+
+    static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Replaces the contents of record with a room record.
+     *
+     * @param assetIndex Gives the position of a piece's image in the file's asset table
+     */
+    static void encodeRoom(Room room, ToIntFunction<Furniture> assetIndex, ByteArrayOutputStream record) throws IOException {
+        record.reset();
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeInt(room.x);
+        out.writeInt(room.y);
+        out.writeInt(room.width);
+        out.writeInt(room.height);
+        out.writeUTF(room.name == null ? "" : room.name);
+        out.writeUTF(room.type == null ? "" : room.type);
+        out.writeBoolean(room.lock);
+
+        writeFixtures(room.getFixtureList(), out);
+        writeFurniture(room.getFurnitureList(), assetIndex, out);
+        out.flush();
+    }
+
+    static void writeFixtures(List<Fixtures> fixtures, DataOutputStream out) throws IOException {
+        out.writeInt(fixtures.size());
+        for (Fixtures fixture : fixtures) {
+            out.writeByte(fixture.wall);
+            out.writeInt(fixture.start);
+            out.writeInt(fixture.end);
+            out.writeUTF(fixture.type);
+        }
+    }
+
+    /**
+     * @param assetIndex Gives the position of a piece's image in the asset table written before it
+     */
+    static void writeFurniture(List<Furniture> furnitureList, ToIntFunction<Furniture> assetIndex, DataOutputStream out) throws IOException {
+        out.writeInt(furnitureList.size());
+        for (Furniture furniture : furnitureList) {
+            out.writeUTF(furniture.getName() == null ? "" : furniture.getName());
+            out.writeInt(assetIndex.applyAsInt(furniture));
+            out.writeInt(furniture.imgwidth);
+            out.writeInt(furniture.imgheight);
+            out.writeInt(furniture.getX());
+            out.writeInt(furniture.getY());
+            out.writeInt(furniture.getWidth());
+            out.writeInt(furniture.getHeight());
+            out.writeInt(furniture.getRotation());
+            out.writeBoolean(furniture.lock);
+        }
+    }
+
+    /**
+     * Reads a plan in any of its formats.
+     */
+    public static ArrayList<Room> read(Path path) throws IOException {
+        try (RoomReader reader = openRooms(path, true)) {
+            if (reader != null) {
+                ArrayList<Room> rooms = new ArrayList<>(reader.getRoomCount());
+                while (reader.hasNext()) {
+                    rooms.add(reader.next());
+                }
+                return rooms;
+            }
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)) {
+            return readLegacy(in);
+        }
+    }
+
+    /**
+     * Opens a plan to be read one room at a time, or returns null if it is a legacy plan of Java-serialized rooms.
+     *
+     * @param details Whether to read fixtures and furniture; without them images and the
+     *                rest of every room record are skipped rather than read
+     */
+    static RoomReader openRooms(Path path, boolean details) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer start = ByteBuffer.allocate(MAGIC.length + 4);
+            while (start.hasRemaining() && channel.read(start) >= 0) {
+                // Files too short for the magic and version are legacy files, or not plans at all
+            }
+            if (start.hasRemaining() || !Arrays.equals(Arrays.copyOf(start.array(), MAGIC.length), MAGIC)) {
+                channel.close();
+                return null;
+            }
+            int version = start.getInt(MAGIC.length);
+            if (version != VERSION) {
+                throw new IOException("Unsupported plan file version " + version);
+            }
+            return new RoomReader(channel, details);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the rooms of a plan in the order they were saved, through its index. Without
+     * details each room is only its outline, name, type and lock, and nothing else is decoded.
+     * Blocks are read through a buffer, so rooms written one after another are read a buffer
+     * at a time rather than one by one.
+     */
+    static final class RoomReader implements Closeable {
+        private final List<AssetRegistry.Asset> assets; // Null when reading outlines only
+        private final FileChannel channel;
+        private final BlockCodec codec = new BlockCodec();
+        private final BlockIndex index;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long bufferOffset; // File position of the buffer's first byte
+        private int roomsRead;
+
+        private RoomReader(FileChannel channel, boolean details) throws IOException {
+            this.channel = channel;
+            assets = details ? new ArrayList<>() : null;
+            index = readIndex(channel, codec);
+            buffer.limit(0);
+            if (details) {
+                for (int i = 0; i < index.assets.size(); i++) {
+                    Block block = index.assets.get(i);
+                    byte[] stored = readFully(channel, block.offset, block.length).array();
+                    assets.add(AssetRegistry.shared().resolve(index.assetIds.get(i), codec.decompress(block.codec, stored, 0, block.length, block.rawLength)));
+                }
+            }
+        }
+
+        int getRoomCount() {
+            return index.rooms.size();
+        }
+
+        boolean hasNext() {
+            return roomsRead < index.rooms.size();
+        }
+
+        Room next() throws IOException {
+            DataInputStream in = new DataInputStream(read(index.rooms.get(roomsRead++)));
+            return assets == null ? readOutline(in) : readRoom(in, assets);
+        }
+
+        private InputStream read(Block block) throws IOException {
+            if (block.length > buffer.capacity()) {
+                byte[] stored = readFully(channel, block.offset, block.length).array();
+                return new ByteArrayInputStream(codec.decompress(block.codec, stored, 0, block.length, block.rawLength));
+            }
+            if (block.offset < bufferOffset || block.offset + block.length > bufferOffset + buffer.limit()) {
+                buffer.clear();
+                while (buffer.position() < block.length) {
+                    if (channel.read(buffer, block.offset + buffer.position()) < 0) {
+                        throw new EOFException();
+                    }
+                }
+                buffer.flip();
+                bufferOffset = block.offset;
+            }
+            int start = (int) (block.offset - bufferOffset);
+            if (block.codec != BlockCodec.STORED) {
+                return new ByteArrayInputStream(codec.decompress(block.codec, buffer.array(), start, block.length, block.rawLength));
+            }
+            return new ByteArrayInputStream(buffer.array(), start, block.length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            codec.close();
+            channel.close();
+        }
+    }
+
+    private static Room readOutline(DataInputStream in) throws IOException {
+        int x = in.readInt();
+        int y = in.readInt();
+        int width = in.readInt();
+        int height = in.readInt();
+        Room room = new Room(x, y, width, height, in.readUTF(), in.readUTF());
+        room.lock = in.readBoolean();
+        return room;
+    }
+
+    private static Room readRoom(DataInputStream in, List<AssetRegistry.Asset> assets) throws IOException {
+        Room room = readOutline(in);
+        for (Fixtures fixture : readFixtures(in)) {
+            room.addFixture(fixture);
+        }
+        room.furnitureList = readFurniture(in, assets);
+        room.linkFurniture();
+        return room;
+    }
+
+    /**
+     * Returns where in a room record each piece of furniture's asset index is, so the
+     * index can be rewritten in place when the asset table changes.
+     */
+    static int[] assetOffsets(byte[] record, int length) throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(record, 0, length);
+        DataInputStream in = new DataInputStream(bytes);
+        readOutline(in);
+        readFixtures(in);
+        int[] offsets = new int[in.readInt()];
+        for (int i = 0; i < offsets.length; i++) {
+            in.readUTF();
+            offsets[i] = length - bytes.available();
+            // The asset index, imgwidth, imgheight, x, y, width, height, rotation and lock
+            if (in.skipBytes(8 * 4 + 1) != 8 * 4 + 1) {
+                throw new EOFException();
+            }
+        }
+        return offsets;
+    }
+
+    static ArrayList<Fixtures> readFixtures(DataInputStream in) throws IOException {
+        int fixtureCount = in.readInt();
+        ArrayList<Fixtures> fixtures = new ArrayList<>(fixtureCount);
+        for (int i = 0; i < fixtureCount; i++) {
+            int wall = in.readByte();
+            if (wall < Fixtures.TOP || wall > Fixtures.LEFT) {
+                throw new IOException("Invalid wall " + wall);
+            }
+            int start = in.readInt();
+            int end = in.readInt();
+            fixtures.add(new Fixtures(wall, start, end, in.readUTF()));
+        }
+        return fixtures;
+    }
+
+    /**
+     * @param assets The asset table read before the furniture
+     */
+    static ArrayList<Furniture> readFurniture(DataInputStream in, List<AssetRegistry.Asset> assets) throws IOException {
+        int furnitureCount = in.readInt();
+        ArrayList<Furniture> furnitureList = new ArrayList<>(furnitureCount);
+        for (int i = 0; i < furnitureCount; i++) {
+            String name = in.readUTF();
+            int asset = in.readInt();
+            if (asset < 0 || asset >= assets.size()) {
+                throw new IOException("Invalid asset " + asset);
+            }
+            furnitureList.add(new Furniture(name, assets.get(asset), in.readInt(), in.readInt(),
+                    in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readBoolean()));
+        }
+        return furnitureList;
+    }
+
+    /**
+     * Reads a legacy plan: the room count, then each Room object
+     * followed by its furniture count and the same furniture again.
+     */
+    private static ArrayList<Room> readLegacy(InputStream in) throws IOException {
+        try {
+            ObjectInputStream ois = new ObjectInputStream(in);
+            int roomCount = ois.readInt();
+            ArrayList<Room> loadedRooms = new ArrayList<>();
+
+            for (int i = 0; i < roomCount; i++) {
+                Room room = (Room) ois.readObject();
+
+                int furnitureCount = ois.readInt();
+                if (furnitureCount > 0) {
+                    room.furnitureList = new ArrayList<>();
+                    for (int j = 0; j < furnitureCount; j++) {
+                        Furniture furniture = (Furniture) ois.readObject();
+                        room.furnitureList.add(furniture);
+                    }
+                }
+                room.linkFurniture();
+
+                loadedRooms.add(room);
+            }
+            return loadedRooms;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a plan file", e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.awt.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.swing.*;
+
+/**
+ * Opens a plan in a new window without blocking the event dispatch thread.
+ * The room outlines are read first, skipping every image and piece of furniture,
+ * and shown as soon as they are read, so how quickly the plan appears does not
+ * depend on how much furniture it holds. Fixtures and furniture then follow in
+ * batches while the status bar shows how many rooms are filled in.
+ * <p>
+ * Cancelling keeps whatever was loaded but forgets the file, so saving the
+ * partial plan asks where to save it instead of overwriting the file.
+ */
+public class PlanLoader extends SwingWorker<Void, PlanLoader.Batch> {
+    private static final int BATCH_SIZE = 250; // Rooms filled in per update of the window
+
+    private final Path path;
+    private final MainWindow window;
+    private final JPanel progressPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private ArrayList<Room> outlines; // The rooms as first shown, in file order; the plan itself may change while loading
+    private boolean indexed; // Whether the file is not a legacy plan, so it can be saved to one room at a time
+    private PlanFile planFile; // The file the rooms are read from, if indexed
+    private BasicFileAttributes attributes; // Of the file before it was read
+
+    /**
+     * Rooms read from the file, starting at index first, or the outlines of every room if first is -1.
+     */
+    static final class Batch {
+        final int first;
+        final ArrayList<Room> rooms;
+
+        Batch(int first, ArrayList<Room> rooms) {
+            this.first = first;
+            this.rooms = rooms;
+        }
+    }
+
+    /**
+     * Opens a new window and starts loading the plan into it. Must be called on the event dispatch thread.
+     */
+    public static void open(Path path) {
+        new PlanLoader(path, new MainWindow()).execute();
+    }
+
+    PlanLoader(Path path, MainWindow window) {
+        this.path = path;
+        this.window = window;
+        window.journal.suspend(); // Loading is not an edit; the journal restarts from the loaded plan
+
+        JLabel label = new JLabel("Loading " + path.getFileName());
+        label.setForeground(Color.WHITE);
+        progressBar.setIndeterminate(true);
+        progressBar.setPreferredSize(new Dimension(200, 14));
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setFocusable(false);
+        cancelButton.setMargin(new Insets(0, 6, 0, 6));
+        cancelButton.addActionListener(e -> cancel(false)); // Interrupting would close the file mid-read
+        progressPanel.setOpaque(false);
+        progressPanel.add(label);
+        progressPanel.add(progressBar);
+        progressPanel.add(cancelButton);
+        window.infoPanel.add(progressPanel, BorderLayout.WEST);
+        window.infoPanel.revalidate();
+
+        addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue((Integer) e.getNewValue());
+            }
+        });
+    }
+
+    @Override
+    protected Void doInBackground() throws Exception {
+        int roomCount;
+        attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        try (PlanFormat.RoomReader reader = PlanFormat.openRooms(path, false)) {
+            if (reader == null) {
+                publish(new Batch(-1, PlanFormat.read(path))); // Legacy plans can only be read whole
+                return null;
+            }
+            roomCount = reader.getRoomCount();
+            indexed = true;
+            ArrayList<Room> rooms = new ArrayList<>(roomCount);
+            while (reader.hasNext()) {
+                rooms.add(reader.next());
+            }
+            publish(new Batch(-1, rooms));
+        }
+
+        try (PlanFormat.RoomReader reader = PlanFormat.openRooms(path, true)) {
+            int first = 0;
+            ArrayList<Room> batch = new ArrayList<>(BATCH_SIZE);
+            while (reader.hasNext() && !isCancelled()) {
+                batch.add(reader.next());
+                if (batch.size() == BATCH_SIZE || !reader.hasNext()) {
+                    publish(new Batch(first, batch));
+                    first += batch.size();
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    setProgress(100 * first / roomCount);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void process(List<Batch> batches) {
+        for (Batch batch : batches) {
+            if (batch.first < 0) {
+                outlines = new ArrayList<>(batch.rooms);
+                if (indexed) {
+                    planFile = PlanFile.forLoadedPlan(path, outlines, attributes.size(), attributes.lastModifiedTime().toMillis());
+                }
+                window.drawingPanel.setRooms(batch.rooms);
+                window.updateRoomTable();
+                window.checkLock();
+            } else {
+                for (int i = 0; i < batch.rooms.size(); i++) {
+                    Room room = outlines.get(batch.first + i);
+                    Room loaded = batch.rooms.get(i);
+                    if (planFile != null) {
+                        planFile.fillIn(room, () -> fillIn(room, loaded));
+                    } else {
+                        fillIn(room, loaded);
+                    }
+                }
+            }
+        }
+        window.drawingPanel.planChanged();
+    }
+
+    /**
+     * Moves the fixtures and furniture read for a room onto the room shown in the window.
+     */
+    private static void fillIn(Room room, Room loaded) {
+        // The room may have been moved, or the layout unlocked, since its outline was shown
+        int deltaX = room.x - loaded.x;
+        int deltaY = room.y - loaded.y;
+        if (room.lock) {
+            for (Fixtures fixture : loaded.getFixtureList()) {
+                room.addFixture(fixture);
+            }
+        }
+        for (Furniture furniture : loaded.getFurnitureList()) {
+            furniture.setX(furniture.getX() + deltaX);
+            furniture.setY(furniture.getY() + deltaY);
+            if (room.lock) {
+                furniture.lock();
+            }
+            room.furnitureList.add(furniture);
+        }
+        room.furnitureLayoutChanged();
+        room.linkFurniture();
+    }
+
+    @Override
+    protected void done() {
+        window.infoPanel.remove(progressPanel);
+        window.infoPanel.revalidate();
+        window.infoPanel.repaint();
+        if (isCancelled()) {
+            FileHandler.filePath = null;
+            window.journal.resume();
+            return;
+        }
+        try {
+            get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            FileHandler.filePath = null;
+            JOptionPane.showMessageDialog(window, "An error occurred while opening the file.", "Error", JOptionPane.ERROR_MESSAGE);
+            window.journal.resume();
+            return;
+        }
+        if (planFile != null) {
+            window.planFile = planFile;
+        }
+        window.journal.resume();
+    }
+}
@@ -0,0 +1,155 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.swing.SwingUtilities;
+
+/**
+ * Rasterises snapshots of the floor plan on a dedicated render thread.
+ * Frames are drawn into a back buffer and swapped with the front buffer once
+ * complete, so the Swing EDT only ever blits a finished frame. A newer request
+ * cancels any frame still being rendered.
+ */
+public class PlanRenderer {
+    private static final int CANCEL_CHECK_INTERVAL = 32; // Rooms drawn between cancellation checks
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "plan-renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Runnable onFrameReady;
+    private final Object frameLock = new Object();
+    private Frame front = null; // Latest completed frame, guarded by frameLock
+    private Frame back = null;  // Only touched by the render thread
+    private volatile int generation = 0;
+    private Future<?> pending = null;
+
+    /**
+     * A completed frame together with the view it was rendered for.
+     */
+    static final class Frame {
+        BufferedImage image;
+        int width, height;        // Logical size in panel pixels
+        double zoom, panX, panY;  // View transform the frame was rendered with
+        Room excludedRoom;        // Room left out of the frame to be drawn live, or null
+    }
+
+    /**
+     * @param onFrameReady Run on the EDT whenever a new frame is available
+     */
+    public PlanRenderer(Runnable onFrameReady) {
+        this.onFrameReady = onFrameReady;
+    }
+
+    /**
+     * Starts rendering a new frame from the given snapshot, cancelling any frame in progress.
+     * Must be called on the EDT.
+     *
+     * @param snapshot     Immutable copies of the rooms to draw
+     * @param excludedRoom The live room left out of the snapshot, recorded with the frame
+     * @param width        Panel width in pixels
+     * @param height       Panel height in pixels
+     * @param deviceScale  Scale from panel pixels to device pixels, not including zoom
+     */
+    public void request(List<Room> snapshot, Room excludedRoom, int width, int height,
+                        double zoom, double panX, double panY, double deviceScale, GraphicsConfiguration gc) {
+        int requestGeneration = ++generation;
+        if (pending != null) {
+            pending.cancel(false); // Drops the previous request if it has not started yet
+        }
+        pending = executor.submit(() -> render(requestGeneration, snapshot, excludedRoom, width, height, zoom, panX, panY, deviceScale, gc));
+    }
+
+    private void render(int requestGeneration, List<Room> snapshot, Room excludedRoom, int width, int height,
+                        double zoom, double panX, double panY, double deviceScale, GraphicsConfiguration gc) {
+        int pixelW = Math.max(1, (int) Math.ceil(width * deviceScale));
+        int pixelH = Math.max(1, (int) Math.ceil(height * deviceScale));
+        if (back == null || back.image.getWidth() != pixelW || back.image.getHeight() != pixelH) {
+            back = new Frame();
+            back.image = gc != null
+                    ? gc.createCompatibleImage(pixelW, pixelH, Transparency.TRANSLUCENT)
+                    : new BufferedImage(pixelW, pixelH, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        Graphics2D g2d = back.image.createGraphics();
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fillRect(0, 0, pixelW, pixelH);
+        g2d.setComposite(AlphaComposite.SrcOver);
+        g2d.scale(deviceScale, deviceScale);
+        g2d.translate(panX, panY);
+        g2d.scale(zoom, zoom);
+        Rectangle visible = new Rectangle((int) Math.floor(-panX / zoom), (int) Math.floor(-panY / zoom),
+                (int) Math.ceil(width / zoom) + 1, (int) Math.ceil(height / zoom) + 1);
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && requestGeneration != generation) {
+                g2d.dispose();
+                return; // Superseded by a newer edit
+            }
+            snapshot.get(i).drawDirect(g2d, deviceScale * zoom, visible);
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            snapshot.get(i).drawFixtures(g2d, visible, deviceScale * zoom);
+        }
+        g2d.dispose();
+        if (requestGeneration != generation) {
+            return;
+        }
+
+        back.width = width;
+        back.height = height;
+        back.zoom = zoom;
+        back.panX = panX;
+        back.panY = panY;
+        back.excludedRoom = excludedRoom;
+        synchronized (frameLock) {
+            Frame completed = back;
+            back = front;
+            front = completed;
+        }
+        SwingUtilities.invokeLater(onFrameReady);
+    }
+
+    /**
+     * Draws the latest completed frame, mapped onto the current view so panning and
+     * zooming stay responsive while the next frame renders. Must be called on the EDT.
+     *
+     * @return The room the frame was rendered without, or null
+     */
+    public Room drawFrame(Graphics2D g2d, double zoom, double panX, double panY) {
+        synchronized (frameLock) {
+            if (front == null) {
+                return null;
+            }
+            double relativeZoom = zoom / front.zoom;
+            int x = (int) Math.round(panX - front.panX * relativeZoom);
+            int y = (int) Math.round(panY - front.panY * relativeZoom);
+            int w = (int) Math.round(front.width * relativeZoom);
+            int h = (int) Math.round(front.height * relativeZoom);
+            g2d.drawImage(front.image, x, y, w, h, null);
+            return front.excludedRoom;
+        }
+    }
+
+    /**
+     * Copies the rooms that intersect the visible area so they can be rendered off the EDT.
+     */
+    static List<Room> snapshot(List<Room> rooms, Room excludedRoom, Rectangle visible) {
+        ArrayList<Room> snapshot = new ArrayList<>();
+        for (Room room : rooms) {
+            if (room != excludedRoom && room.intersectsPaintArea(visible)) {
+                snapshot.add(room.snapshot());
+            }
+        }
+        return snapshot;
+    }
+
+    public void shutdown() {
+        generation++;
+        executor.shutdownNow();
+    }
+}
@@ -1,6 +1,12 @@
 import java.awt.*;
+import java.awt.font.FontRenderContext;
 import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.util.*;
 import javax.swing.JOptionPane;
 
@@ -9,6 +15,7 @@ import javax.swing.JOptionPane;
  * This class handles the drawing, selection, and manipulation of rooms.
  */
 public class Room implements Serializable {
+    private static final long serialVersionUID = -5342603352791326794L; // Keeps plans saved by earlier versions loadable
     int x, y, width, height;
     boolean selected = false;
     String name;
@@ -18,12 +25,66 @@ public class Room implements Serializable {
     private static final Color HANDLE_COLOR = new Color(41, 128, 185);
     private static final Color HANDLE_BORDER_COLOR = new Color(52, 152, 219);
     private static final int LINE_THICKNESS = 4;
+    private static final Color LIVING_ROOM_COLOR = new Color(251, 203, 121);
+    private static final Color BEDROOM_COLOR = new Color(173, 255, 180);
+    private static final Color KITCHEN_COLOR = new Color(255, 137, 137, 255);
+    private static final Color BATHROOM_COLOR = new Color(155, 234, 251);
+    private static final Stroke WALL_STROKE = new BasicStroke(LINE_THICKNESS);
+    private static final Stroke HANDLE_STROKE = new BasicStroke(2);
+    private static final Stroke DOOR_STROKE = new BasicStroke(LINE_THICKNESS);
+    // Windows are dashed by hand: a dashed BasicStroke allocates inside Java2D on every draw
+    private static final Stroke WINDOW_STROKE = new BasicStroke(LINE_THICKNESS, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL);
+    private static final int WINDOW_DASH = 9;
+    private static final int WINDOW_GAP = 5;
+    private static final Font DIMENSION_FONT = new Font("Arial", Font.PLAIN, 12);
     boolean lock = false;
     private ArrayList<Fixtures> fixtureList = new ArrayList<>();
     //private ArrayList<Integer> doorPositions = new ArrayList<>();
     //private ArrayList<Integer> windowPositions = new ArrayList<>();
     public static final int DOOR_SIZE = 30; // Size of the door opening
     public static final int WINDOW_SIZE = 30; // Size of the window opening
+    static final int PAINT_MARGIN = HANDLE_SIZE; // Room paint spill past its outline (walls, fixtures, handles)
+    private static final long MAX_SPRITE_PIXELS = 1024 * 1024; // Bigger rooms are drawn directly
+    private static final int LABELS_MIN_PIXELS = 30; // On-screen size below which only outlines are drawn
+    private static final int FULL_MIN_PIXELS = 60; // On-screen size from which furniture and fixtures are drawn
+    private static final int FURNITURE_INDEX_CELL_SIZE = 64;
+
+    /**
+     * Level of detail a room is drawn with, chosen from its size on screen.
+     */
+    enum Detail {
+        OUTLINE,  // Walls and fill only
+        LABELS,   // Adds the name and dimension labels
+        FULL      // Adds furniture, fixtures and handles
+    }
+
+    // Cached rendering of the room body, valid while the fields it was rendered from are unchanged
+    private transient SoftReference<BufferedImage> sprite;
+    private transient boolean spriteValid = false;
+    private transient int spriteWidth, spriteHeight, spriteFurnitureCount;
+    private transient String spriteName, spriteType;
+    private transient boolean spriteLock;
+    private transient double spriteDeviceScale, spriteMeasure;
+
+    // Fixtures grouped by wall, built from fixtureList when first needed
+    private transient FixtureWall[] walls;
+
+    // Furniture indexed by position relative to the room, so moving the room leaves it untouched
+    private transient SpatialGrid<Furniture> furnitureIndex;
+
+    // Shaped dimension labels, looked up again only when the text they show or the render context changes
+    private transient LabelCache.Label widthLabel, heightLabel, dimLabel, nameLabel;
+    private transient int labelWidth, labelHeight;
+    private transient String labelName;
+    private transient boolean labelLock;
+    private transient double labelMeasure;
+    private transient FontRenderContext labelContext;
+    // Reused for this room's handles; a snapshot has its own, so the EDT and the renderer never share one
+    private transient Ellipse2D.Double handleShape;
+    private transient Line2D.Double openingShape; // Reused the same way; Graphics2D.drawLine makes a new line for wide strokes
+
+    // Changes made to the fixture and furniture lists and to the pieces in them; not copied by snapshot()
+    private transient int fixtureEdits, furnitureEdits;
 
     Room(int x, int y, int width, int height, String name,String type) {
         this.x = x;
@@ -37,29 +98,163 @@ public class Room implements Serializable {
     private void roomColor (String type,Graphics2D g2d){
         switch(type) {
             case "Drawing/Dining Room":
-                final Color LIVING_ROOM_COLOR = new Color(251, 203, 121);
                 g2d.setColor(LIVING_ROOM_COLOR);
                 break;
             case "Bedroom":
-                final Color BEDROOM_COLOR = new Color(173, 255, 180);
                 g2d.setColor(BEDROOM_COLOR);
                 break;
             case "Kitchen":
-                final Color KITCHEN_COLOR = new Color(255, 137, 137, 255);
                 g2d.setColor(KITCHEN_COLOR);
                 break;
             case "Bathroom":
-                final Color BATHROOM_COLOR = new Color(155, 234, 251);
                 g2d.setColor(BATHROOM_COLOR);
                 break;
         }
     }
 
     void drawRooms(Graphics2D g2d) {
+        drawRooms(g2d, g2d.getTransform().getScaleX(), null);
+    }
+
+    /**
+     * Draws the room using the caller's device scale, which the panel computes
+     * once per frame instead of once per room.
+     *
+     * @param deviceScale Horizontal scale from user space to device pixels
+     * @param clip        Visible area in world coordinates, or null to draw all furniture
+     */
+    void drawRooms(Graphics2D g2d, double deviceScale, Rectangle clip) {
+        Detail detail = getDetail(deviceScale);
+        if (detail == Detail.OUTLINE) {
+            // Two primitives are cheaper than a sprite blit
+            paintRoom(g2d, clip, detail, deviceScale);
+        } else if (selected || !drawSprite(g2d, deviceScale, detail)) {
+            // Selected rooms show handles and change on every drag step, so they are never cached
+            paintRoom(g2d, clip, detail, deviceScale);
+        }
+    }
+
+    /**
+     * Draws the room without going through its sprite. Used by the background
+     * renderer, whose room snapshots are discarded after a single frame.
+     */
+    void drawDirect(Graphics2D g2d, double deviceScale, Rectangle clip) {
+        paintRoom(g2d, clip, getDetail(deviceScale), deviceScale);
+    }
+
+    /**
+     * Returns a copy of this room, its fixtures and furniture that the background
+     * renderer can draw while the original keeps being edited on the EDT.
+     */
+    Room snapshot() {
+        Room copy = new Room(x, y, width, height, name, type);
+        copy.lock = lock;
+        copy.selected = selected; // Rooms selected along with the live one are drawn from snapshots
+        copy.fixtureList = new ArrayList<>(fixtureList);
+        for (Furniture furniture : furnitureList) {
+            copy.furnitureList.add(new Furniture(furniture));
+        }
+        return copy;
+    }
+
+    /**
+     * Counts the changes made to the fixtures, to tell which rooms changed since they were saved or journaled.
+     * The other fields are compared directly, as they are assigned from outside the class.
+     */
+    int getFixtureEdits() {
+        return fixtureEdits;
+    }
+
+    /**
+     * Counts the changes made to the furniture, including those made through a piece of it, the same way.
+     */
+    int getFurnitureEdits() {
+        return furnitureEdits;
+    }
+
+    void furnitureEdited() {
+        furnitureEdits++;
+    }
+
+    /**
+     * Picks the level of detail from the room's smaller side in device pixels.
+     * The selected room is always drawn in full so its handles stay usable.
+     *
+     * @param deviceScale Horizontal scale from user space to device pixels
+     */
+    Detail getDetail(double deviceScale) {
+        if (selected) {
+            return Detail.FULL;
+        }
+        double onScreen = Math.min(width, height) * deviceScale;
+        if (onScreen < LABELS_MIN_PIXELS) {
+            return Detail.OUTLINE;
+        }
+        return onScreen < FULL_MIN_PIXELS ? Detail.LABELS : Detail.FULL;
+    }
+
+    /**
+     * Draws the cached sprite of this room, rendering it first if it is missing or stale.
+     *
+     * @return false if the room is too large at the current scale to be cached
+     */
+    private boolean drawSprite(Graphics2D g2d, double deviceScale, Detail detail) {
+        int spriteW = width + 2 * PAINT_MARGIN;
+        int spriteH = height + 2 * PAINT_MARGIN;
+        int pixelW = (int) Math.ceil(spriteW * deviceScale);
+        int pixelH = (int) Math.ceil(spriteH * deviceScale);
+        if (pixelW <= 0 || pixelH <= 0 || (long) pixelW * pixelH > MAX_SPRITE_PIXELS) {
+            return false;
+        }
+
+        BufferedImage image = sprite == null ? null : sprite.get();
+        if (image == null || !isSpriteValid(deviceScale)) {
+            image = g2d.getDeviceConfiguration().createCompatibleImage(pixelW, pixelH, Transparency.TRANSLUCENT);
+            Graphics2D spriteGraphics = image.createGraphics();
+            spriteGraphics.setRenderingHints(g2d.getRenderingHints());
+            spriteGraphics.scale(deviceScale, deviceScale);
+            spriteGraphics.translate(PAINT_MARGIN - x, PAINT_MARGIN - y);
+            paintRoom(spriteGraphics, null, detail, deviceScale);
+            spriteGraphics.dispose();
+
+            sprite = new SoftReference<>(image);
+            spriteValid = true;
+            spriteWidth = width;
+            spriteHeight = height;
+            spriteName = name;
+            spriteType = type;
+            spriteLock = lock;
+            spriteFurnitureCount = furnitureList.size();
+            spriteDeviceScale = deviceScale;
+            spriteMeasure = FloorPlanPanel.scale;
+        }
+
+        g2d.drawImage(image, x - PAINT_MARGIN, y - PAINT_MARGIN, spriteW, spriteH, null);
+        return true;
+    }
+
+    private boolean isSpriteValid(double deviceScale) {
+        return spriteValid
+                && spriteWidth == width && spriteHeight == height
+                && spriteLock == lock
+                && Objects.equals(spriteName, name) && Objects.equals(spriteType, type)
+                && spriteFurnitureCount == furnitureList.size()
+                && spriteDeviceScale == deviceScale && spriteMeasure == FloorPlanPanel.scale;
+    }
+
+    /**
+     * Marks the cached sprite as stale. Size, name, type and lock changes are
+     * detected automatically; call this after editing the room's furniture.
+     */
+    void invalidateSprite() {
+        spriteValid = false;
+    }
+
+    private void paintRoom(Graphics2D g2d, Rectangle clip, Detail detail, double deviceScale) {
         // Store the original stroke to restore it later
         Stroke originalStroke = g2d.getStroke();
         // Set a new stroke with the defined line thickness
-        g2d.setStroke(new BasicStroke(LINE_THICKNESS));
+        g2d.setStroke(WALL_STROKE);
 
         g2d.setColor(selected ? Color.RED:Color.BLACK);  // Set color based on selection state
         g2d.drawRect(x, y, width, height);  // Draw the room rectangle
@@ -69,17 +264,20 @@ public class Room implements Serializable {
         g2d.fillRect(x+LINE_THICKNESS/2,y+LINE_THICKNESS/2,width-LINE_THICKNESS,height-LINE_THICKNESS);
 
         // Draw resize handles
-        if(selected){drawResizeHandles(g2d);}
+        if(selected && detail == Detail.FULL){drawResizeHandles(g2d);}
 
 
         // Restore the original stroke
         g2d.setStroke(originalStroke);
 
+        if (detail == Detail.OUTLINE) {
+            return;
+        }
         drawDimensions(g2d);
 
-        drawFurniture(g2d);
-        // Draw dimensions
-
+        if (detail == Detail.FULL) {
+            drawFurniture(g2d, clip, deviceScale);
+        }
     }
 
     private void drawResizeHandles(Graphics2D g2d) {
@@ -87,62 +285,68 @@ public class Room implements Serializable {
             // Enable anti-aliasing for smoother handle rendering
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-            // Define positions for all handles
-            int[][] handlePositions = {
-                    {x, y}, {x + width, y}, {x, y + height}, {x + width, y + height},
-                    {x + width / 2, y}, {x + width / 2, y + height},
-                    {x, y + height / 2}, {x + width, y + height / 2}
-            };
-
+            if (handleShape == null) {
+                handleShape = new Ellipse2D.Double();
+            }
             // Draw each handle
-            for (int[] pos : handlePositions) {
-                // Create an ellipse shape for the handle
-                Ellipse2D handle = new Ellipse2D.Double(pos[0] - HANDLE_SIZE / 2, pos[1] - HANDLE_SIZE / 2, HANDLE_SIZE, HANDLE_SIZE);
+            for (Handle handle : Handle.ALL) {
+                int handleX = handle.centerX(x, width);
+                int handleY = handle.centerY(y, height);
+                handleShape.setFrame(handleX - HANDLE_SIZE / 2, handleY - HANDLE_SIZE / 2, HANDLE_SIZE, HANDLE_SIZE);
                 g2d.setColor(HANDLE_COLOR);  // Set the fill color for the handle
-                g2d.fill(handle);  // Fill the handle
+                g2d.fill(handleShape);  // Fill the handle
                 g2d.setColor(HANDLE_BORDER_COLOR);  // Set the border color for the handle
-                g2d.setStroke(new BasicStroke(2));  // Set the stroke for the handle border
-                g2d.draw(handle);  // Draw the handle border
+                g2d.setStroke(HANDLE_STROKE);  // Set the stroke for the handle border
+                g2d.draw(handleShape);  // Draw the handle border
             }
         }
     }
 
     private void drawDimensions(Graphics2D g2d) {
-        double measure = FloorPlanPanel.scale;
         g2d.setColor(Color.BLUE);  // Set color for dimension text
-        g2d.setFont(new Font("Arial", Font.PLAIN, 12));  // Set font for dimension text
-        FontMetrics fm = g2d.getFontMetrics();
-        String nameDisplay;
-        String dimDisplay = (int)(width/(measure*12)) + "'" + ((int)(width/measure))%12 + "'' x " + (int)(height/(measure*12)) + "'" + ((int)(height/measure))%12 + "''";
-        String widthDisplay = (int)(width/(measure*12)) + "'" + ((int)(width/measure))%12 + "''";
-        String heightDisplay = (int)(height/(measure*12)) + "'" + ((int)(height/measure))%12 + "''";
-        int widthWidth = fm.stringWidth(widthDisplay);
-        int heightWidth = fm.stringWidth(heightDisplay);
-        int dimWidth = fm.stringWidth(dimDisplay);
-
-        if(lock){
-            nameDisplay = name + "(Locked)";
-        }
-        else{
-            nameDisplay = name;
-        }
-        int nameWidth = fm.stringWidth(nameDisplay);
+        updateLabels(g2d);
+        int widthLabelX = x + width / 2 - (int) widthLabel.advance / 2;
+
         // Draw width dimensions at top and bottom
-        g2d.drawString(widthDisplay, x + width / 2 - widthWidth/2, y + 20);
-        g2d.drawString(widthDisplay, x + width / 2 - widthWidth/2, y + height - 10);
+        g2d.drawGlyphVector(widthLabel.glyphs, widthLabelX, y + 20);
+        g2d.drawGlyphVector(widthLabel.glyphs, widthLabelX, y + height - 10);
 
         // Draw height dimensions at left and right
-        g2d.drawString(heightDisplay, x + 10, y + height / 2);
-        g2d.drawString(heightDisplay, x + width - 10 - heightWidth, y + height / 2);
+        g2d.drawGlyphVector(heightLabel.glyphs, x + 10, y + height / 2);
+        g2d.drawGlyphVector(heightLabel.glyphs, x + width - 10 - (int) heightLabel.advance, y + height / 2);
 
          //Draw room name and size in the center
-        int nameX = x + width/2 - nameWidth/2;
+        int nameX = x + width/2 - (int) nameLabel.advance/2;
         int nameY = y + height/2 - 10;
-        int dimX = x + width/2 - dimWidth/2;
+        int dimX = x + width/2 - (int) dimLabel.advance/2;
         int dimY = y + height/2 + 10;
 
-        g2d.drawString(nameDisplay,nameX,nameY);
-        g2d.drawString(dimDisplay, dimX, dimY);
+        g2d.drawGlyphVector(nameLabel.glyphs, nameX, nameY);
+        g2d.drawGlyphVector(dimLabel.glyphs, dimX, dimY);
+    }
+
+    private void updateLabels(Graphics2D g2d) {
+        double measure = FloorPlanPanel.scale;
+        FontRenderContext frc = g2d.getFontRenderContext();
+        if (widthLabel != null && labelWidth == width && labelHeight == height
+                && labelLock == lock && Objects.equals(labelName, name) && labelMeasure == measure
+                && frc.equals(labelContext)) {
+            return;
+        }
+        LabelCache cache = LabelCache.shared();
+        String widthText = cache.formatFeetInches(width, measure);
+        String heightText = cache.formatFeetInches(height, measure);
+        widthLabel = cache.get(widthText, DIMENSION_FONT, frc);
+        heightLabel = cache.get(heightText, DIMENSION_FONT, frc);
+        dimLabel = cache.get(widthText + " x " + heightText, DIMENSION_FONT, frc);
+        nameLabel = cache.get(lock ? name + "(Locked)" : name, DIMENSION_FONT, frc);
+
+        labelWidth = width;
+        labelHeight = height;
+        labelLock = lock;
+        labelName = name;
+        labelMeasure = measure;
+        labelContext = frc;
     }
 
     boolean contains(int px, int py) {
@@ -151,21 +355,14 @@ public class Room implements Serializable {
     }
 
     boolean containsHandle(int px, int py) {
-        // Define positions for all handles
-        int[][] handlePositions = {
-                {x, y}, {x + width, y}, {x, y + height}, {x + width, y + height},
-                {x + width / 2, y}, {x + width / 2, y + height},
-                {x, y + height / 2}, {x + width, y + height / 2}
-        };
-
-        // Check each handle
-        for (int[] pos : handlePositions) {
-            // Create an ellipse shape for the handle and check if it contains the point
-            if (new Ellipse2D.Double(pos[0] - (double) HANDLE_SIZE / 2, pos[1] - (double) HANDLE_SIZE / 2, HANDLE_SIZE, HANDLE_SIZE).contains(px, py)) {
-                return true;  // Point is inside a handle
-            }
-        }
-        return false;  // Point is not inside any handle
+        return getHandleAt(px, py) != null;
+    }
+
+    /**
+     * Returns the handle under the given point, or null if there is none.
+     */
+    Handle getHandleAt(int px, int py) {
+        return Handle.hitTest(px, py, x, y, width, height, HANDLE_SIZE / 2);
     }
 
     /**
@@ -209,19 +406,63 @@ public class Room implements Serializable {
     Rectangle getBounds() {
         return new Rectangle(x, y, width, height);  // Create and return a new Rectangle object with the room's dimensions
     }
+
+    /**
+     * Returns the area this room paints into, which is slightly larger than its
+     * bounds because walls, fixtures and resize handles straddle the outline.
+     *
+     * @return A Rectangle covering everything drawn for this room
+     */
+    Rectangle getPaintBounds() {
+        return new Rectangle(x - PAINT_MARGIN, y - PAINT_MARGIN, width + 2 * PAINT_MARGIN, height + 2 * PAINT_MARGIN);
+    }
+
+    /**
+     * Same test as {@code getBounds().intersects(new Rectangle(x, y, width, height))}, without allocating.
+     */
+    boolean overlaps(int otherX, int otherY, int otherWidth, int otherHeight) {
+        return width > 0 && height > 0 && otherWidth > 0 && otherHeight > 0
+                && x < otherX + otherWidth && otherX < x + width
+                && y < otherY + otherHeight && otherY < y + height;
+    }
+
+    /**
+     * Allocation-free equivalent of {@code clip.intersects(getPaintBounds())} for the paint path.
+     *
+     * @param clip The area being repainted, or null to paint everything
+     * @return true if any part of this room's paint bounds lies inside the clip
+     */
+    boolean intersectsPaintArea(Rectangle clip) {
+        return clip == null
+                || (x - PAINT_MARGIN < clip.x + clip.width && clip.x < x + width + PAINT_MARGIN
+                && y - PAINT_MARGIN < clip.y + clip.height && clip.y < y + height + PAINT_MARGIN);
+    }
     
     // Methods to manage furniture
     public void addFurniture(Furniture furniture) {
+        SpatialGrid<Furniture> index = getFurnitureIndex(); // Brought up to date before the list changes
         furnitureList.add(furniture);
+        furnitureEdits++;
+        invalidateSprite();
         if (furniture.getX() < x || furniture.getX() + furniture.getWidth() > x + width || furniture.getY() < y || furniture.getY() + furniture.getHeight() > y + height) {
             furniture.setX(x);
             furniture.setY(y);
         }
+        furniture.setRoom(this);
+        index.insert(furniture, furniture.getX() - x, furniture.getY() - y, furniture.getWidth(), furniture.getHeight());
     }
 
     public void removeFurniture(Furniture furniture) {
         if (furnitureList.contains(furniture)) {
             furnitureList.remove(furniture);
+            if (furnitureIndex != null) {
+                furnitureIndex.remove(furniture);
+            }
+            if (furniture.getRoom() == this) {
+                furniture.setRoom(null);
+            }
+            furnitureEdits++;
+            invalidateSprite();
         }
         else {
             JOptionPane.showMessageDialog(null, "Furniture not found in the list.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -232,32 +473,125 @@ public class Room implements Serializable {
         return furnitureList;
     }
 
+    /**
+     * Called after a piece of this room's furniture was moved, resized or rotated.
+     */
+    void furnitureChanged(Furniture furniture) {
+        getFurnitureIndex().update(furniture, furniture.getX() - x, furniture.getY() - y, furniture.getWidth(), furniture.getHeight());
+        furnitureEdits++;
+        invalidateSprite();
+    }
+
+    /**
+     * Called after furniture was rearranged relative to the room as a whole, e.g. by rotating the room.
+     */
+    void furnitureLayoutChanged() {
+        furnitureIndex = null;
+        furnitureEdits++;
+        invalidateSprite();
+    }
+
+    /**
+     * Returns the top-most furniture whose outline or resize handles contain the given point, or null.
+     */
+    Furniture findFurnitureAt(int px, int py) {
+        if (furnitureList.isEmpty()) {
+            return null;
+        }
+        return getFurnitureIndex().queryTopmost(px - x, py - y, Furniture.HANDLE_REACH,
+                furniture -> furniture.containsHandle(px, py) || furniture.contains(px, py));
+    }
+
+    /**
+     * Returns the furniture index, rebuilding it if furniture was added to or removed
+     * from the list directly, e.g. while loading. Rebuilding also links each piece
+     * back to this room.
+     */
+    private SpatialGrid<Furniture> getFurnitureIndex() {
+        if (furnitureIndex == null || furnitureIndex.size() != furnitureList.size()) {
+            furnitureIndex = new SpatialGrid<>(FURNITURE_INDEX_CELL_SIZE);
+            for (Furniture furniture : furnitureList) {
+                furniture.setRoom(this);
+                furnitureIndex.insert(furniture, furniture.getX() - x, furniture.getY() - y, furniture.getWidth(), furniture.getHeight());
+            }
+        }
+        return furnitureIndex;
+    }
+
+    /**
+     * Links every piece of furniture in the list back to this room.
+     */
+    void linkFurniture() {
+        getFurnitureIndex();
+    }
+
     public void drawFurniture(Graphics g) {
         Graphics2D g2d = (Graphics2D) g;
-        for (Furniture furniture : furnitureList) {
-            furniture.draw(g2d);
+        drawFurniture(g2d, null, g2d.getTransform().getScaleX());
+    }
+
+    private void drawFurniture(Graphics2D g2d, Rectangle clip, double deviceScale) {
+        for (int i = 0; i < furnitureList.size(); i++) {
+            Furniture furniture = furnitureList.get(i);
+            if (clip == null || furniture.intersectsPaintArea(clip)) {
+                furniture.draw(g2d, deviceScale);
+            }
         }
     }
 
 
     //methods to manage doors and windows
-    public void addDoor(int position,int size) {
-        if (isValidOpening(position)) {
-            //doorPositions.add(position);
-            fixtureList.add(new Fixtures(position,"door",size));
+    /**
+     * Adds a door spanning [start, end) on the given wall, measured from the wall's top or left end.
+     */
+    public void addDoor(int wall, int start, int end) {
+        if (isValidOpening(wall, start, end)) {
+            addFixture(new Fixtures(wall, start, end, "door"));
         } else {
             JOptionPane.showMessageDialog(null, "Invalid door placement.", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
-    
-    public void addWindow(int position, int size) {
-        if (isValidOpening(position)) {
-            //windowPositions.add(position);
-            fixtureList.add(new Fixtures(position,"window",size));
+
+    /**
+     * Adds a window spanning [start, end) on the given wall, measured from the wall's top or left end.
+     */
+    public void addWindow(int wall, int start, int end) {
+        if (isValidOpening(wall, start, end)) {
+            addFixture(new Fixtures(wall, start, end, "window"));
         } else {
             JOptionPane.showMessageDialog(null, "Invalid window placement.", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    void addFixture(Fixtures fixture) {
+        fixtureList.add(fixture);
+        getWalls()[fixture.wall].add(fixture);
+        fixtureEdits++;
+    }
+
+    /**
+     * Returns the fixtures on each wall, indexed by Fixtures.TOP, RIGHT, BOTTOM and LEFT.
+     */
+    FixtureWall[] getWalls() {
+        if (walls == null) {
+            walls = new FixtureWall[4];
+            for (int i = 0; i < walls.length; i++) {
+                walls[i] = new FixtureWall();
+            }
+            for (Fixtures fixture : fixtureList) {
+                walls[fixture.wall].add(fixture);
+            }
+        }
+        return walls;
+    }
+
+    /**
+     * Returns the length of the given wall.
+     */
+    int getWallLength(int wall) {
+        return wall == Fixtures.TOP || wall == Fixtures.BOTTOM ? width : height;
+    }
+
     /*
     public void removeDoor(int position) {
         if (doorPositions.contains(position)) {
@@ -289,32 +623,73 @@ public class Room implements Serializable {
     }
 
     public void drawFixtures(Graphics2D g2d) {
+        drawFixtures(g2d, null, Double.MAX_VALUE);
+    }
+
+    /**
+     * Draws doors and windows, skipping them when the room is outside the given
+     * clip or too small on screen to show fixtures.
+     *
+     * @param clip        Visible area in world coordinates, or null to draw every fixture
+     * @param deviceScale Horizontal scale from user space to device pixels
+     */
+    public void drawFixtures(Graphics2D g2d, Rectangle clip, double deviceScale) {
+        if (fixtureList.isEmpty() || !intersectsPaintArea(clip) || getDetail(deviceScale) != Detail.FULL) {
+            return;
+        }
 
         Stroke originalStroke = g2d.getStroke();
         Color originalColor = g2d.getColor();
 
-        for (Fixtures fixtures : fixtureList) {
-            if (Objects.equals(fixtures.type, "door")) {
-                g2d.setColor(Color.WHITE);
-                g2d.setStroke(new BasicStroke(LINE_THICKNESS));
-            } else if (Objects.equals(fixtures.type, "window")) {
-//                g2d.setColor(Color.WHITE);
-//                g2d.setStroke(new BasicStroke(LINE_THICKNESS));
-                g2d.setColor(Color.WHITE);
-                g2d.setStroke(new BasicStroke(LINE_THICKNESS, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{9, 5}, 0));
+        if (openingShape == null) {
+            openingShape = new Line2D.Double();
+        }
+        FixtureWall[] fixtureWalls = getWalls();
+        for (int wall = 0; wall < fixtureWalls.length; wall++) {
+            boolean horizontal = wall == Fixtures.TOP || wall == Fixtures.BOTTOM;
+            int lineX = wall == Fixtures.RIGHT ? x + width : x;
+            int lineY = wall == Fixtures.BOTTOM ? y + height : y;
+
+            // Only the openings along the visible part of the wall
+            int from = Integer.MIN_VALUE;
+            int to = Integer.MAX_VALUE;
+            if (clip != null && horizontal) {
+                if (lineY < clip.y - LINE_THICKNESS || lineY > clip.y + clip.height + LINE_THICKNESS) {
+                    continue;
+                }
+                from = clip.x - x;
+                to = clip.x + clip.width - x;
+            } else if (clip != null) {
+                if (lineX < clip.x - LINE_THICKNESS || lineX > clip.x + clip.width + LINE_THICKNESS) {
+                    continue;
+                }
+                from = clip.y - y;
+                to = clip.y + clip.height - y;
             }
-            if (fixtures.position < width) {
-                // Top wall
-                g2d.drawLine(x + fixtures.position, y, x + fixtures.position + fixtures.size, y);
-            } else if (fixtures.position < width + height) {
-                // Right wall
-                g2d.drawLine(x + width, y + fixtures.position - width, x + width, y + fixtures.position - width + fixtures.size);
-            } else if (fixtures.position < 2 * width + height) {
-                // Bottom wall
-                g2d.drawLine(x + fixtures.position - width - height, y + height, x + fixtures.position - width - height + fixtures.size, y + height);
-            } else {
-                // Left wall
-                g2d.drawLine(x, y + fixtures.position - 2 * width - height, x, y + fixtures.position - 2 * width - height + fixtures.size);
+
+            Fixtures[] openings = fixtureWalls[wall].ordered();
+            for (int i = fixtureWalls[wall].firstAt(from); i < openings.length && openings[i].start <= to; i++) {
+                Fixtures fixtures = openings[i];
+                int dash = fixtures.end - fixtures.start;
+                int gap = 0;
+                if (Objects.equals(fixtures.type, "door")) {
+                    g2d.setColor(Color.WHITE);
+                    g2d.setStroke(DOOR_STROKE);
+                } else if (Objects.equals(fixtures.type, "window")) {
+                    g2d.setColor(Color.WHITE);
+                    g2d.setStroke(WINDOW_STROKE);
+                    dash = WINDOW_DASH;
+                    gap = WINDOW_GAP;
+                }
+                for (int dashStart = fixtures.start; dashStart < fixtures.end; dashStart += dash + gap) {
+                    int dashEnd = Math.min(dashStart + dash, fixtures.end);
+                    if (horizontal) {
+                        openingShape.setLine(lineX + dashStart, lineY, lineX + dashEnd, lineY);
+                    } else {
+                        openingShape.setLine(lineX, lineY + dashStart, lineX, lineY + dashEnd);
+                    }
+                    g2d.draw(openingShape);
+                }
             }
         }
 
@@ -324,13 +699,14 @@ public class Room implements Serializable {
 }
 
     
-    private boolean isValidOpening(int position) {
-        for (Fixtures existingFixture : fixtureList) {
-            if (Math.abs(existingFixture.position - position) < existingFixture.size) {
-                return false;
-            }
+    /**
+     * Returns true if [start, end) lies on the wall and overlaps no door or window already on it.
+     */
+    private boolean isValidOpening(int wall, int start, int end) {
+        if (wall < Fixtures.TOP || wall > Fixtures.LEFT || start < 0 || end <= start || end > getWallLength(wall)) {
+            return false;
         }
-        return true;
+        return !getWalls()[wall].overlaps(start, end);
     }
     
     /*
@@ -354,6 +730,8 @@ public class Room implements Serializable {
 
     public void clearFixtures() {
         fixtureList.clear();
+        walls = null;
+        fixtureEdits++;
     }
 
     public void lockRoom(){
@@ -361,6 +739,7 @@ public class Room implements Serializable {
         for (Furniture furniture : furnitureList) {
             furniture.lock();
         }
+        invalidateSprite();
 
     }
 
@@ -370,6 +749,7 @@ public class Room implements Serializable {
         for (Furniture furniture : furnitureList) {
             furniture.unlock();
         }
+        invalidateSprite();
     }
 
     public void toggleRoomLock(){
@@ -385,4 +765,14 @@ public class Room implements Serializable {
   //      return doorPositions.isEmpty() && windowPositions.isEmpty();
         return fixtureList.isEmpty();
     }
+
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        // Plans saved before fixtures knew their wall store an offset around the perimeter instead
+        for (Fixtures fixture : fixtureList) {
+            if (fixture.isLegacy()) {
+                fixture.convertLegacy(width, height);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -1,14 +1,17 @@
 import java.awt.*;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.WeakHashMap;
 import javax.swing.*;
 import javax.swing.table.*;
 
 class RoomTableModel extends AbstractTableModel {
     private final String[] columnNames = {"Room Name", "Actions"};
-    private ArrayList<Room> rooms;
+    private List<Room> rooms;
+    // Cell text per room, rebuilt only when the room's name or type changes
+    private final WeakHashMap<Room, String[]> cellText = new WeakHashMap<>();
 
     
-    public RoomTableModel(ArrayList<Room> rooms) {
+    public RoomTableModel(List<Room> rooms) {
         this.rooms = rooms;
     }
     
@@ -31,7 +34,13 @@ class RoomTableModel extends AbstractTableModel {
     public Object getValueAt(int rowIndex, int columnIndex) {
         Room room = rooms.get(rowIndex);
         if (columnIndex == 0) {
-            return "<html>" + room.name + "<br><font color='red'>" + room.type + "</font></html>" ;
+            String[] cached = cellText.get(room);
+            if (cached == null || cached[0] != room.name || cached[1] != room.type) {
+                String html = "<html>" + room.name + "<br><font color='red'>" + room.type + "</font></html>";
+                cached = new String[]{room.name, room.type, html};
+                cellText.put(room, cached);
+            }
+            return cached[2];
         }
         return ""; // For the buttons column
     }
@@ -41,7 +50,7 @@ class RoomTableModel extends AbstractTableModel {
         return column == 1; // Only allow editing in the buttons column
     }
     
-    public void updateData(ArrayList<Room> newRooms) {
+    public void updateData(List<Room> newRooms) {
         this.rooms = newRooms;
         fireTableDataChanged();
     }
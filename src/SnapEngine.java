@@ -0,0 +1,221 @@
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Finds the edge a moving rectangle should snap to.
+ * The vertical and horizontal edges of every registered rectangle are kept in
+ * position-sorted primitive arrays, together with the extent each edge covers on
+ * the other axis, so a snap query binary-searches to the few edges within the snap
+ * distance instead of visiting every rectangle. Optionally also snaps to a grid.
+ */
+public class SnapEngine {
+    private final Edges xEdges = new Edges(); // Vertical edges (left and right sides), by x
+    private final Edges yEdges = new Edges(); // Horizontal edges (top and bottom sides), by y
+    private final IdentityHashMap<Object, int[]> bounds = new IdentityHashMap<>();
+    private final int snapDistance;
+    private int gridSpacing = 0;
+
+    private final Snap xSnap = new Snap(); // Results reused by every query, one per axis
+    private final Snap ySnap = new Snap();
+
+    /**
+     * The outcome of a snap query along one axis. Owned by the engine and
+     * overwritten by its next query along the same axis.
+     */
+    public static final class Snap {
+        public int position;       // Start of the span after snapping
+        public boolean snapped;
+        public int line;           // Coordinate of the edge or grid line snapped to
+        public Object owner;       // Owner of the edge snapped to, or null for a grid line
+        public int extentStart;    // Extent of that edge on the other axis
+        public int extentEnd;
+
+        private Snap set(int position, boolean snapped, int line, Object owner, int extentStart, int extentEnd) {
+            this.position = position;
+            this.snapped = snapped;
+            this.line = line;
+            this.owner = owner;
+            this.extentStart = extentStart;
+            this.extentEnd = extentEnd;
+            return this;
+        }
+    }
+
+    /**
+     * @param snapDistance How close, in world units, a side must come to an edge to snap to it
+     */
+    public SnapEngine(int snapDistance) {
+        this.snapDistance = snapDistance;
+    }
+
+    /**
+     * Sets the spacing of the grid to snap to when no edge is in reach, or 0 for no grid.
+     */
+    public void setGridSpacing(int gridSpacing) {
+        this.gridSpacing = Math.max(0, gridSpacing);
+    }
+
+    public int getGridSpacing() {
+        return gridSpacing;
+    }
+
+    /**
+     * Registers the edges of a rectangle, or moves them if the owner is already registered.
+     */
+    public void update(Object owner, int x, int y, int width, int height) {
+        int[] old = bounds.get(owner);
+        if (old != null) {
+            if (old[0] == x && old[1] == y && old[2] == width && old[3] == height) {
+                return;
+            }
+            removeEdges(owner, old);
+        }
+        int[] rect = {x, y, width, height};
+        bounds.put(owner, rect);
+        xEdges.insert(x, y, y + height, owner);
+        xEdges.insert(x + width, y, y + height, owner);
+        yEdges.insert(y, x, x + width, owner);
+        yEdges.insert(y + height, x, x + width, owner);
+    }
+
+    public void remove(Object owner) {
+        int[] old = bounds.remove(owner);
+        if (old != null) {
+            removeEdges(owner, old);
+        }
+    }
+
+    public void clear() {
+        bounds.clear();
+        xEdges.size = 0;
+        yEdges.size = 0;
+        Arrays.fill(xEdges.owner, null);
+        Arrays.fill(yEdges.owner, null);
+    }
+
+    public int size() {
+        return bounds.size();
+    }
+
+    private void removeEdges(Object owner, int[] rect) {
+        xEdges.remove(rect[0], owner);
+        xEdges.remove(rect[0] + rect[2], owner);
+        yEdges.remove(rect[1], owner);
+        yEdges.remove(rect[1] + rect[3], owner);
+    }
+
+    /**
+     * Snaps a span along one axis to the nearest edge within the snap distance.
+     * Either end of the span may snap; only edges that overlap the span's extent on
+     * the other axis count. Falls back to the grid when no edge is in reach.
+     * Allocates nothing: the result is reused, so an x and a y result can be held
+     * at once but each is only valid until the next query along its axis.
+     *
+     * @param position        Start of the span on the snapping axis
+     * @param size            Length of the span on the snapping axis
+     * @param otherCoordinate Start of the span on the other axis
+     * @param otherSize       Length of the span on the other axis
+     * @param isHorizontal    true to snap x against vertical edges, false to snap y against horizontal edges
+     * @param exclude         Owner whose edges are ignored, usually the one being moved
+     */
+    public Snap snap(int position, int size, int otherCoordinate, int otherSize, boolean isHorizontal, Object exclude) {
+        Edges edges = isHorizontal ? xEdges : yEdges;
+        Snap result = isHorizontal ? xSnap : ySnap;
+        int bestDistance = Integer.MAX_VALUE;
+        int bestEdge = -1;
+        int snappedPosition = position;
+
+        // The start of the span snaps before its end, as in a left-to-right scan
+        for (int end = 0; end < 2; end++) {
+            int side = end == 0 ? position : position + size;
+            for (int i = edges.lowerBound(side - snapDistance); i < edges.size && edges.pos[i] <= side + snapDistance; i++) {
+                int distance = Math.abs(side - edges.pos[i]);
+                if (distance < bestDistance && edges.owner[i] != exclude
+                        && otherCoordinate < edges.hi[i] && otherCoordinate + otherSize > edges.lo[i]) {
+                    bestDistance = distance;
+                    bestEdge = i;
+                    snappedPosition = end == 0 ? edges.pos[i] : edges.pos[i] - size;
+                }
+            }
+        }
+        if (bestEdge >= 0) {
+            return result.set(snappedPosition, true, edges.pos[bestEdge], edges.owner[bestEdge], edges.lo[bestEdge], edges.hi[bestEdge]);
+        }
+
+        if (gridSpacing > 0) {
+            int startLine = Math.round((float) position / gridSpacing) * gridSpacing;
+            int endLine = Math.round((float) (position + size) / gridSpacing) * gridSpacing;
+            int startDistance = Math.abs(position - startLine);
+            int endDistance = Math.abs(position + size - endLine);
+            if (startDistance <= snapDistance && startDistance <= endDistance) {
+                return result.set(startLine, true, startLine, null, 0, 0);
+            }
+            if (endDistance <= snapDistance) {
+                return result.set(endLine - size, true, endLine, null, 0, 0);
+            }
+        }
+        return result.set(position, false, 0, null, 0, 0);
+    }
+
+    /**
+     * Edges along one axis in parallel arrays sorted by position.
+     */
+    private static final class Edges {
+        int size = 0;
+        int[] pos = new int[16];
+        int[] lo = new int[16];  // Extent on the other axis
+        int[] hi = new int[16];
+        Object[] owner = new Object[16];
+
+        /**
+         * Returns the index of the first edge at or after the given position.
+         */
+        int lowerBound(int position) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (pos[mid] < position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void insert(int position, int extentStart, int extentEnd, Object edgeOwner) {
+            if (size == pos.length) {
+                int capacity = size * 2;
+                pos = Arrays.copyOf(pos, capacity);
+                lo = Arrays.copyOf(lo, capacity);
+                hi = Arrays.copyOf(hi, capacity);
+                owner = Arrays.copyOf(owner, capacity);
+            }
+            int index = lowerBound(position);
+            int moved = size - index;
+            System.arraycopy(pos, index, pos, index + 1, moved);
+            System.arraycopy(lo, index, lo, index + 1, moved);
+            System.arraycopy(hi, index, hi, index + 1, moved);
+            System.arraycopy(owner, index, owner, index + 1, moved);
+            pos[index] = position;
+            lo[index] = extentStart;
+            hi[index] = extentEnd;
+            owner[index] = edgeOwner;
+            size++;
+        }
+
+        void remove(int position, Object edgeOwner) {
+            for (int i = lowerBound(position); i < size && pos[i] == position; i++) {
+                if (owner[i] == edgeOwner) {
+                    int moved = size - i - 1;
+                    System.arraycopy(pos, i + 1, pos, i, moved);
+                    System.arraycopy(lo, i + 1, lo, i, moved);
+                    System.arraycopy(hi, i + 1, hi, i, moved);
+                    System.arraycopy(owner, i + 1, owner, i, moved);
+                    owner[--size] = null;
+                    return;
+                }
+            }
+        }
+    }
+}
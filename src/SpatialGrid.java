@@ -0,0 +1,320 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Uniform grid index over axis-aligned rectangles.
+ * Each item is registered in every cell its bounds touch, so point and rectangle
+ * queries only look at the items in the cells they cover instead of every item.
+ * Items are compared by identity and remember the order they were inserted in,
+ * which lets callers resolve overlaps top-most first.
+ *
+ * @param <T> The indexed item type
+ */
+public class SpatialGrid<T> {
+    private final int cellSize;
+    private final CellTable<T> cells = new CellTable<>();
+    private final IdentityHashMap<T, Entry<T>> entries = new IdentityHashMap<>();
+    private long nextOrder = 0;
+    private int queryStamp = 0; // Marks entries already reported by the current query
+
+    private static final class Entry<T> {
+        final T item;
+        int x, y, width, height;
+        long order;
+        int stamp;
+
+        Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * @param cellSize Width and height of a grid cell in world units; roughly the size of a typical item works best
+     */
+    public SpatialGrid(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Adds an item on top of every item already in the grid. An item already in the grid is
+     * moved to the new bounds and to the top.
+     */
+    public void insert(T item, int x, int y, int width, int height) {
+        remove(item);
+        Entry<T> entry = new Entry<>(item);
+        entry.order = nextOrder++;
+        entries.put(item, entry);
+        setBounds(entry, x, y, width, height);
+        addToCells(entry);
+    }
+
+    /**
+     * Moves an item to new bounds, keeping its stacking order. Items not yet in the grid are inserted.
+     */
+    public void update(T item, int x, int y, int width, int height) {
+        Entry<T> entry = entries.get(item);
+        if (entry == null) {
+            insert(item, x, y, width, height);
+            return;
+        }
+        if (entry.x == x && entry.y == y && entry.width == width && entry.height == height) {
+            return;
+        }
+        if (sameCells(entry, x, y, width, height)) {
+            setBounds(entry, x, y, width, height); // Small moves usually stay within the same cells
+            return;
+        }
+        removeFromCells(entry);
+        setBounds(entry, x, y, width, height);
+        addToCells(entry);
+    }
+
+    public void remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry != null) {
+            removeFromCells(entry);
+        }
+    }
+
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        cells.clear();
+        entries.clear();
+        nextOrder = 0;
+    }
+
+    /**
+     * Returns the stacking order of an item; items inserted later have a higher order.
+     */
+    public long orderOf(T item) {
+        Entry<T> entry = entries.get(item);
+        return entry == null ? -1 : entry.order;
+    }
+
+    /**
+     * Adds to {@code out} every item whose bounds overlap or touch the given rectangle,
+     * each item once. Callers apply their own exact test to the results.
+     */
+    public void query(int x, int y, int width, int height, List<T> out) {
+        int stamp = ++queryStamp;
+        int minCellX = cellOf(x), maxCellX = cellOf(x + width);
+        int minCellY = cellOf(y), maxCellY = cellOf(y + height);
+        if ((long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1) > cells.size()) {
+            // The range spans more cells than are occupied, so visit the occupied ones instead
+            for (int slot = 0; slot < cells.capacity(); slot++) {
+                ArrayList<Entry<T>> cell = cells.at(slot);
+                if (cell != null) {
+                    collect(cell, stamp, x, y, width, height, out);
+                }
+            }
+            return;
+        }
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                ArrayList<Entry<T>> cell = cells.get(key(cellX, cellY));
+                if (cell != null) {
+                    collect(cell, stamp, x, y, width, height, out);
+                }
+            }
+        }
+    }
+
+    private void collect(ArrayList<Entry<T>> cell, int stamp, int x, int y, int width, int height, List<T> out) {
+        for (int i = 0; i < cell.size(); i++) {
+            Entry<T> entry = cell.get(i);
+            if (entry.stamp != stamp && entry.x <= x + width && x <= entry.x + entry.width
+                    && entry.y <= y + height && y <= entry.y + entry.height) {
+                entry.stamp = stamp;
+                out.add(entry.item);
+            }
+        }
+    }
+
+    /**
+     * Returns the top-most item among those overlapping or touching the given point
+     * for which {@code test} accepts, or null.
+     */
+    public T queryTopmost(int x, int y, int margin, Predicate<T> test) {
+        Entry<T> best = null;
+        int minCellX = cellOf(x - margin), maxCellX = cellOf(x + margin);
+        int minCellY = cellOf(y - margin), maxCellY = cellOf(y + margin);
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                ArrayList<Entry<T>> cell = cells.get(key(cellX, cellY));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size(); i++) {
+                    Entry<T> entry = cell.get(i);
+                    if ((best == null || entry.order > best.order)
+                            && entry.x - margin <= x && x <= entry.x + entry.width + margin
+                            && entry.y - margin <= y && y <= entry.y + entry.height + margin
+                            && test.test(entry.item)) {
+                        best = entry;
+                    }
+                }
+            }
+        }
+        return best == null ? null : best.item;
+    }
+
+    private static <T> void setBounds(Entry<T> entry, int x, int y, int width, int height) {
+        entry.x = x;
+        entry.y = y;
+        entry.width = width;
+        entry.height = height;
+    }
+
+    private boolean sameCells(Entry<T> entry, int x, int y, int width, int height) {
+        return cellOf(entry.x) == cellOf(x) && cellOf(entry.x + entry.width) == cellOf(x + width)
+                && cellOf(entry.y) == cellOf(y) && cellOf(entry.y + entry.height) == cellOf(y + height);
+    }
+
+    private void addToCells(Entry<T> entry) {
+        for (int cellX = cellOf(entry.x); cellX <= cellOf(entry.x + entry.width); cellX++) {
+            for (int cellY = cellOf(entry.y); cellY <= cellOf(entry.y + entry.height); cellY++) {
+                long key = key(cellX, cellY);
+                ArrayList<Entry<T>> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new ArrayList<>();
+                    cells.put(key, cell);
+                }
+                cell.add(entry);
+            }
+        }
+    }
+
+    private void removeFromCells(Entry<T> entry) {
+        for (int cellX = cellOf(entry.x); cellX <= cellOf(entry.x + entry.width); cellX++) {
+            for (int cellY = cellOf(entry.y); cellY <= cellOf(entry.y + entry.height); cellY++) {
+                long key = key(cellX, cellY);
+                ArrayList<Entry<T>> cell = cells.get(key);
+                if (cell != null) {
+                    cell.remove(entry);
+                    if (cell.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellOf(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+
+    /**
+     * Map from cell keys to cells, open-addressed on primitive keys so that looking up
+     * a cell does not box its key: paint queries look up every visible cell each frame.
+     */
+    private static final class CellTable<T> {
+        private long[] keys = new long[64];
+        private Object[] values = new Object[64]; // The cell for the key in the same slot, or null if the slot is free
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        ArrayList<Entry<T>> get(long key) {
+            for (int i = slot(key, keys.length); values[i] != null; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key) {
+                    return (ArrayList<Entry<T>>) values[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Adds a cell for a key that has none.
+         */
+        void put(long key, ArrayList<Entry<T>> cell) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int i = slot(key, keys.length);
+            while (values[i] != null) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            keys[i] = key;
+            values[i] = cell;
+            size++;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, keys.length);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null) {
+                return;
+            }
+            values[i] = null;
+            size--;
+            // Moves later keys of the same probe run back into the freed slot, so lookups never stop early
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], keys.length);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        /**
+         * Returns the cell in a slot of the table, or null if the slot is free.
+         */
+        @SuppressWarnings("unchecked")
+        ArrayList<Entry<T>> at(int slot) {
+            return (ArrayList<Entry<T>>) values[slot];
+        }
+
+        void clear() {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int j = slot(oldKeys[i], keys.length);
+                    while (values[j] != null) {
+                        j = (j + 1) & (keys.length - 1);
+                    }
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+
+        private static int slot(long key, int length) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (length - 1);
+        }
+    }
+}
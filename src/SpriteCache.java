@@ -0,0 +1,180 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.ImageIcon;
+
+/**
+ * Shared cache of pre-rendered furniture images.
+ * Each entry is a source image scaled to a target size, rotated and rendered at a
+ * device scale, so drawing it is a single unscaled blit. Entries are evicted
+ * least-recently-used once the cached pixels exceed the memory budget.
+ */
+public class SpriteCache {
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    private static final SpriteCache SHARED = new SpriteCache(DEFAULT_MAX_BYTES);
+
+    private final LinkedHashMap<Key, BufferedImage> sprites = new LinkedHashMap<>(64, 0.75f, true); // Access order for LRU
+    private final Key lookupKey = new Key(); // Reused so cache hits don't allocate
+    private final long maxBytes;
+    private long usedBytes = 0;
+    private long hits = 0, misses = 0, evictions = 0;
+
+    public SpriteCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static SpriteCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the source image scaled to width x height, rotated clockwise by the
+     * given multiple of 90 degrees and rendered at the device scale.
+     *
+     * @param gc          Configuration to create a compatible image for, or null for a plain ARGB image
+     * @param source      The asset image
+     * @param width       Target width in user space, before rotation
+     * @param height      Target height in user space, before rotation
+     * @param rotation    Clockwise rotation in degrees (0, 90, 180 or 270)
+     * @param deviceScale Scale from user space to device pixels
+     * @return An image of the rotated target size in device pixels
+     */
+    public synchronized BufferedImage get(GraphicsConfiguration gc, Image source, int width, int height, int rotation, double deviceScale) {
+        rotation = ((rotation % 360) + 360) % 360;
+        lookupKey.set(source, width, height, rotation, deviceScale);
+        BufferedImage sprite = sprites.get(lookupKey);
+        if (sprite != null) {
+            hits++;
+            return sprite;
+        }
+        misses++;
+
+        sprite = render(gc, source, width, height, rotation, deviceScale);
+        Key key = new Key();
+        key.set(source, width, height, rotation, deviceScale);
+        sprites.put(key, sprite);
+        usedBytes += bytesOf(sprite);
+        evict();
+        return sprite;
+    }
+
+    private static BufferedImage render(GraphicsConfiguration gc, Image source, int width, int height, int rotation, double deviceScale) {
+        if (!(source instanceof BufferedImage)) {
+            new ImageIcon(source); // Waits for toolkit images to finish loading
+        }
+        int pixelW = Math.max(1, (int) Math.round(width * deviceScale));
+        int pixelH = Math.max(1, (int) Math.round(height * deviceScale));
+        boolean quarterTurn = rotation == 90 || rotation == 270;
+        int outW = quarterTurn ? pixelH : pixelW;
+        int outH = quarterTurn ? pixelW : pixelH;
+
+        Image scaled = downscale(source, pixelW, pixelH);
+        BufferedImage sprite = gc != null
+                ? gc.createCompatibleImage(outW, outH, Transparency.TRANSLUCENT)
+                : new BufferedImage(outW, outH, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = sprite.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.translate(outW / 2.0, outH / 2.0);
+        g2d.rotate(Math.toRadians(rotation));
+        g2d.drawImage(scaled, -pixelW / 2, -pixelH / 2, pixelW, pixelH, null);
+        g2d.dispose();
+        return sprite;
+    }
+
+    /**
+     * Halves the image until it is within a factor of two of the target, which keeps
+     * bicubic downscaling close to the quality of SCALE_SMOOTH at a fraction of the cost.
+     */
+    private static Image downscale(Image source, int targetW, int targetH) {
+        Image current = source;
+        int w = source.getWidth(null);
+        int h = source.getHeight(null);
+        while (w / 2 >= targetW && h / 2 >= targetH) {
+            w /= 2;
+            h /= 2;
+            BufferedImage half = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = half.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(current, 0, 0, w, h, null);
+            g2d.dispose();
+            current = half;
+        }
+        return current;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, BufferedImage>> eldest = sprites.entrySet().iterator();
+        // Always keep the entry just added, even if it alone exceeds the budget
+        while (usedBytes > maxBytes && sprites.size() > 1) {
+            BufferedImage sprite = eldest.next().getValue();
+            eldest.remove();
+            usedBytes -= bytesOf(sprite);
+            evictions++;
+        }
+    }
+
+    private static long bytesOf(BufferedImage image) {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+
+    public synchronized void clear() {
+        sprites.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return sprites.size();
+    }
+
+    private static final class Key {
+        Image source;
+        int width, height, rotation;
+        double deviceScale;
+
+        void set(Image source, int width, int height, int rotation, double deviceScale) {
+            this.source = source;
+            this.width = width;
+            this.height = height;
+            this.rotation = rotation;
+            this.deviceScale = deviceScale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            // Assets are compared by identity; two loads of the same file are different sources
+            return source == other.source && width == other.width && height == other.height
+                    && rotation == other.rotation && deviceScale == other.deviceScale;
+        }
+
+        @Override
+        public int hashCode() {
+            // Computed by hand so lookups stay allocation-free
+            int hash = System.identityHashCode(source);
+            hash = 31 * hash + width;
+            hash = 31 * hash + height;
+            hash = 31 * hash + rotation;
+            return 31 * hash + Double.hashCode(deviceScale);
+        }
+    }
+}
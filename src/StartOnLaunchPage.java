@@ -1,6 +1,9 @@
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
 import javax.swing.*;
 
 public class StartOnLaunchPage extends JFrame implements ActionListener {
@@ -82,6 +85,51 @@ public class StartOnLaunchPage extends JFrame implements ActionListener {
         this.setIconImage(logo.getImage());
         this.setVisible(true);
 
+        recoverUnsavedPlans();
+    }
+
+    /**
+     * Offers to reopen the plans left unsaved when PlanIt last stopped without closing
+     * properly, rebuilt from their edit journals.
+     */
+    private void recoverUnsavedPlans() {
+        ArrayList<EditJournal.Recovery> recovered = new ArrayList<>();
+        for (Map.Entry<String, Integer> session : EditJournal.findUnclean().entrySet()) {
+            try {
+                EditJournal.Recovery recovery = EditJournal.recover(session.getKey(), session.getValue());
+                if (recovery.rooms.isEmpty()) {
+                    EditJournal.discard(recovery.session); // Nothing was drawn
+                } else {
+                    recovered.add(recovery);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (recovered.isEmpty()) {
+            return;
+        }
+
+        String message = recovered.size() == 1
+                ? "PlanIt did not close properly last time.\nDo you want to recover the unsaved floor plan?"
+                : "PlanIt did not close properly last time.\nDo you want to recover the " + recovered.size() + " unsaved floor plans?";
+        int option = JOptionPane.showConfirmDialog(this, message, "Recover Unsaved Plans", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        for (EditJournal.Recovery recovery : recovered) {
+            if (option == JOptionPane.YES_OPTION) {
+                MainWindow mainWindow = new MainWindow();
+                FileHandler.filePath = recovery.planPath;
+                mainWindow.journal.suspend();
+                mainWindow.drawingPanel.setRooms(recovery.rooms);
+                mainWindow.updateRoomTable();
+                mainWindow.checkLock();
+                mainWindow.drawingPanel.planChanged();
+                mainWindow.journal.resume(); // Journaled afresh before the old session is deleted
+            }
+            EditJournal.discard(recovery.session);
+        }
+        if (option == JOptionPane.YES_OPTION) {
+            this.dispose();
+        }
     }
 
     @Override
@@ -0,0 +1,86 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import javax.swing.ImageIcon;
+
+/**
+ * Shows that plan size and load time follow the number of distinct furniture images rather
+ * than the number of pieces. For plans of 10 pieces per room sharing 3 images it reports the
+ * size and load time of the whole plan file, and of the images alone stored the way plans
+ * stored them before, an ImageIcon per piece; the latter only up to 5k pieces, as it takes
+ * some 10 KB per piece. Loads find the catalog images already registered, as they are in the app.
+ * Run with: javac -d out src/*.java test/*.java && java -Djava.awt.headless=true -cp out:src AssetBenchmark
+ */
+public class AssetBenchmark {
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("planit-benchmark");
+        Path plan = dir.resolve("plan.plnt");
+        Path perPiece = dir.resolve("images.ser");
+        try {
+            for (int pieces : new int[]{1000, 5000, 20000}) {
+                ArrayList<Room> rooms = SyntheticPlan.rooms(pieces / 10, 10, 3);
+                PlanFormat.write(rooms, plan);
+                double load = Double.MAX_VALUE;
+                for (int run = 0; run < 2 * RUNS; run++) {
+                    long start = System.nanoTime();
+                    PlanFormat.read(plan);
+                    if (run >= RUNS) {
+                        load = Math.min(load, (System.nanoTime() - start) / 1e6);
+                    }
+                }
+                System.out.printf("%6d pieces: plan file %9d bytes, loaded in %7.1f ms", pieces, Files.size(plan), load);
+
+                if (pieces <= 5000) {
+                    writePerPiece(rooms, perPiece);
+                    double read = Double.MAX_VALUE;
+                    for (int run = 0; run < 2 * RUNS; run++) {
+                        long start = System.nanoTime();
+                        readPerPiece(perPiece);
+                        if (run >= RUNS) {
+                            read = Math.min(read, (System.nanoTime() - start) / 1e6);
+                        }
+                    }
+                    System.out.printf("   images per piece %10d bytes, read in %7.1f ms", Files.size(perPiece), read);
+                }
+                System.out.println();
+            }
+        } finally {
+            Files.deleteIfExists(plan);
+            Files.deleteIfExists(perPiece);
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Writes each piece's image as its own ImageIcon, pixels included, as Furniture.writeObject used to.
+     */
+    private static void writePerPiece(ArrayList<Room> rooms, Path path) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            for (Room room : rooms) {
+                for (Furniture furniture : room.getFurnitureList()) {
+                    out.writeObject(new ImageIcon(furniture.getImage()));
+                }
+            }
+        }
+    }
+
+    private static void readPerPiece(Path path) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                try {
+                    in.readObject();
+                } catch (EOFException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Random;
+
+/**
+ * Compares the block compressions of the plan format on a synthetic 20k-room plan, a 20k-room
+ * plan of varied rooms and furniture from the whole catalog, and any plan files given as
+ * arguments. For each it reports the ratio and throughput of the
+ * codec alone over the plan's blocks, then the file size and the time to save and load it.
+ * Throughputs are in MB of uncompressed data per second, the best of a few runs after as many to warm up.
+ * Run with: javac -d out src/*.java test/*.java && java -Djava.awt.headless=true -cp out:src CompressionBenchmark [plan.plnt ...]
+ */
+public class CompressionBenchmark {
+    private static final int ROOMS = 20000;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("planit-benchmark");
+        Path plan = dir.resolve("plan.plnt");
+        try {
+            report("synthetic", SyntheticPlan.rooms(ROOMS, 5, 3), plan);
+            report("varied", varied(ROOMS), plan);
+            for (String file : args) {
+                report(file, PlanFormat.read(Paths.get(file)), plan);
+            }
+        } finally {
+            Files.deleteIfExists(plan);
+            Files.delete(dir);
+        }
+    }
+
+    private static void report(String name, ArrayList<Room> rooms, Path path) throws IOException {
+        System.out.println(name + " (" + rooms.size() + " rooms):");
+
+        // The blocks a plan file holds: each image once, then a record per room
+        ArrayList<byte[]> blocks = new ArrayList<>();
+        IdentityHashMap<AssetRegistry.Asset, Boolean> stored = new IdentityHashMap<>();
+        long rawLength = 0;
+        for (Room room : rooms) {
+            for (Furniture furniture : room.getFurnitureList()) {
+                if (stored.put(furniture.getAsset(), Boolean.TRUE) == null) {
+                    blocks.add(furniture.getAsset().getPng());
+                }
+            }
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            PlanFormat.encodeRoom(room, furniture -> 0, record);
+            blocks.add(record.toByteArray());
+        }
+        for (byte[] block : blocks) {
+            rawLength += block.length;
+        }
+
+        long fileLength = 0;
+        for (PlanFormat.Compression compression : PlanFormat.Compression.values()) {
+            BlockCodec encoder = new BlockCodec();
+            BlockCodec decoder = new BlockCodec();
+            byte[][] compressed = new byte[blocks.size()][];
+            byte[] codecs = new byte[blocks.size()];
+            long compressedLength = 0;
+            double compressTime = Double.MAX_VALUE;
+            double decompressTime = Double.MAX_VALUE;
+            for (int run = 0; run < 2 * RUNS; run++) {
+                long start = System.nanoTime();
+                compressedLength = 0;
+                for (int i = 0; i < compressed.length; i++) {
+                    byte[] block = blocks.get(i);
+                    codecs[i] = encoder.compress(block, block.length, compression);
+                    compressed[i] = Arrays.copyOf(encoder.output(), encoder.outputLength());
+                    compressedLength += compressed[i].length;
+                }
+                long compressEnd = System.nanoTime();
+                for (int i = 0; i < compressed.length; i++) {
+                    decoder.decompress(codecs[i], compressed[i], 0, compressed[i].length, blocks.get(i).length);
+                }
+                long decompressEnd = System.nanoTime();
+                if (run >= RUNS) {
+                    compressTime = Math.min(compressTime, (compressEnd - start) / 1e9);
+                    decompressTime = Math.min(decompressTime, (decompressEnd - compressEnd) / 1e9);
+                }
+            }
+
+            double saveTime = Double.MAX_VALUE;
+            double loadTime = Double.MAX_VALUE;
+            for (int run = 0; run < 2 * RUNS; run++) {
+                long start = System.nanoTime();
+                PlanFormat.write(rooms, path, compression);
+                long saveEnd = System.nanoTime();
+                PlanFormat.read(path);
+                long loadEnd = System.nanoTime();
+                if (run >= RUNS) {
+                    saveTime = Math.min(saveTime, (saveEnd - start) / 1e9);
+                    loadTime = Math.min(loadTime, (loadEnd - saveEnd) / 1e9);
+                }
+            }
+            if (compression == PlanFormat.Compression.NONE) {
+                fileLength = Files.size(path);
+            }
+
+            System.out.printf("  %-8s codec: ratio %5.2f, %6.0f MB/s in, %6.0f MB/s out   file: %9d bytes, ratio %5.2f, save %6.1f ms, load %6.1f ms%n",
+                    compression, (double) rawLength / compressedLength, rawLength / compressTime / 1e6, rawLength / decompressTime / 1e6,
+                    Files.size(path), (double) fileLength / Files.size(path), saveTime * 1e3, loadTime * 1e3);
+        }
+    }
+
+    /**
+     * Returns a plan of rooms of random sizes in rows, with up to 3 doors and windows and up to 7 pieces
+     * of furniture, some turned, from every image of the furniture catalog.
+     */
+    private static ArrayList<Room> varied(int count) {
+        String[] files = new File(CompressionBenchmark.class.getResource("Pngs/Furniture").getPath()).list();
+        Arrays.sort(files);
+        AssetRegistry.Asset[] assets = new AssetRegistry.Asset[files.length];
+        for (int i = 0; i < files.length; i++) {
+            assets[i] = SyntheticPlan.asset(files[i]);
+        }
+        String[] types = {"Bedroom", "Kitchen", "Bathroom", "Drawing/Dining Room"};
+        Random random = new Random(3);
+        ArrayList<Room> rooms = new ArrayList<>(count);
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < count; i++) {
+            int width = 150 + random.nextInt(300);
+            int height = 150 + random.nextInt(300);
+            Room room = new Room(x, y, width, height, types[i % types.length] + " " + (i / types.length + 1), types[i % types.length]);
+            room.lock = true;
+            x += width;
+            if (x > 40000) {
+                x = 0;
+                y += 460;
+            }
+            int fixtures = random.nextInt(4);
+            for (int wall = 0; wall < fixtures; wall++) {
+                int start = random.nextInt(room.getWallLength(wall) - Room.DOOR_SIZE);
+                if (random.nextBoolean()) {
+                    room.addDoor(wall, start, start + Room.DOOR_SIZE);
+                } else {
+                    room.addWindow(wall, start, start + Room.DOOR_SIZE);
+                }
+            }
+            int pieces = random.nextInt(8);
+            for (int f = 0; f < pieces; f++) {
+                int image = random.nextInt(assets.length);
+                Furniture furniture = new Furniture(files[image].replace(".png", ""), assets[image]);
+                furniture.setX(room.x + random.nextInt(width - 50));
+                furniture.setY(room.y + random.nextInt(height - 50));
+                if (random.nextInt(3) == 0) {
+                    furniture.rotateFurniture(90);
+                }
+                room.addFurniture(furniture);
+            }
+            rooms.add(room);
+        }
+        return rooms;
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Compares saving and loading a 10k-room plan in the plan format against the Java
+ * serialization plans were saved with before it, which PlanFormat.read still loads.
+ * Reports the best of a few runs after as many to warm up, and the file sizes.
+ * Run with: javac -d out src/*.java test/*.java && java -Djava.awt.headless=true -cp out:src FormatBenchmark
+ */
+public class FormatBenchmark {
+    private static final int ROOMS = 10000;
+    private static final int RUNS = 3;
+
+    private interface Step {
+        void run() throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ArrayList<Room> rooms = SyntheticPlan.rooms(ROOMS, 5, 3);
+        Path dir = Files.createTempDirectory("planit-benchmark");
+        Path legacy = dir.resolve("legacy.plnt");
+        Path plan = dir.resolve("plan.plnt");
+        try {
+            report("serialization", legacy, () -> writeLegacy(rooms, legacy), () -> PlanFormat.read(legacy));
+            report("plan format  ", plan, () -> PlanFormat.write(rooms, plan), () -> PlanFormat.read(plan));
+        } finally {
+            Files.deleteIfExists(legacy);
+            Files.deleteIfExists(plan);
+            Files.delete(dir);
+        }
+    }
+
+    private static void report(String name, Path path, Step save, Step load) throws IOException {
+        double saved = time(save);
+        double loaded = time(load);
+        System.out.printf("%s: save %7.1f ms   load %7.1f ms   %10d bytes%n", name, saved, loaded, Files.size(path));
+    }
+
+    private static double time(Step step) throws IOException {
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < 2 * RUNS; run++) {
+            long start = System.nanoTime();
+            step.run();
+            if (run >= RUNS) {
+                best = Math.min(best, (System.nanoTime() - start) / 1e6);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Saves the plan as FileHandler.saving did before the plan format: the room count, then
+     * each Room object followed by its furniture count and the same furniture again, unbuffered.
+     */
+    private static void writeLegacy(ArrayList<Room> rooms, Path path) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(path))) {
+            oos.writeInt(rooms.size());
+            for (Room room : rooms) {
+                oos.writeObject(room);
+                oos.writeInt(room.furnitureList.size());
+                for (Furniture furniture : room.furnitureList) {
+                    oos.writeObject(furniture);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+/**
+ * Reports the frame time of a 5k-room plan at a scale in each level-of-detail tier, painting
+ * rooms directly so the cost of each tier shows rather than that of a sprite blit, and through
+ * their sprites as the panel does. Rooms are drawn in turn across one screen-sized image, so
+ * each is really rasterised.
+ * Run with: javac -d out src/*.java test/*.java && java -Djava.awt.headless=true -cp out:src LodBenchmark
+ */
+public class LodBenchmark {
+    private static final int ROOMS = 5000;
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final int FRAMES = 10;
+
+    public static void main(String[] args) {
+        ArrayList<Room> rooms = SyntheticPlan.rooms(ROOMS, 5, 3);
+        // Rooms are 280 across: 22, 45 and 70 pixels on screen
+        double[] scales = {0.08, 0.16, 0.25};
+        for (double scale : scales) {
+            Room.Detail detail = rooms.get(0).getDetail(scale);
+            double direct = paint(rooms, scale, false);
+            double cached = paint(rooms, scale, true);
+            System.out.printf("%-7s (scale %.2f): direct %7.1f ms/frame   with sprites %7.1f ms/frame%n", detail, scale, direct, cached);
+        }
+    }
+
+    /**
+     * Returns the best time of a few frames, after as many unmeasured frames to warm up.
+     */
+    private static double paint(ArrayList<Room> rooms, double scale, boolean cached) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        int cell = (int) (SyntheticPlan.SPACING * scale);
+        int columns = WIDTH / cell;
+        int cells = columns * (HEIGHT / cell);
+        double best = Double.MAX_VALUE;
+        for (int frame = 0; frame < 2 * FRAMES; frame++) {
+            Graphics2D g2d = image.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.scale(scale, scale);
+            long start = System.nanoTime();
+            for (int i = 0; i < rooms.size(); i++) {
+                Room room = rooms.get(i);
+                // Moves the room into the next cell of the image, in world units
+                int dx = (i % cells % columns) * SyntheticPlan.SPACING - room.x;
+                int dy = (i % cells / columns) * SyntheticPlan.SPACING - room.y;
+                g2d.translate(dx, dy);
+                if (cached) {
+                    room.drawRooms(g2d, scale, null);
+                } else {
+                    room.drawDirect(g2d, scale, null);
+                }
+                room.drawFixtures(g2d, null, scale);
+                g2d.translate(-dx, -dy);
+            }
+            long elapsed = System.nanoTime() - start;
+            g2d.dispose();
+            if (frame >= FRAMES) {
+                best = Math.min(best, elapsed / 1e6);
+            }
+        }
+        return best;
+    }
+}
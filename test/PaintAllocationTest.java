@@ -0,0 +1,64 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import javax.swing.ImageIcon;
+
+/**
+ * Paints a synthetic plan into an image again and again and fails if a frame allocates
+ * more than a small allowance once caches are warm, so allocations creeping back into
+ * the paint path are caught. A selected room and a selected piece are included for their handles.
+ * Run with: javac -d out src/*.java test/*.java && java -Djava.awt.headless=true -cp out PaintAllocationTest
+ */
+public class PaintAllocationTest {
+    private static final int WARMUP_FRAMES = 2000; // Enough for the JIT to compile the paint path and drop its temporaries
+    private static final int FRAMES = 200;
+    // What Java2D itself allocates: about 300 bytes for the frame's Graphics and some 56 for
+    // each antialiased handle it fills or outlines. Another 16 bytes per room, opening or piece
+    // of furniture on this plan would go past it.
+    private static final long MAX_BYTES_PER_FRAME = 2048;
+
+    public static void main(String[] args) throws Exception {
+        ImageIcon icon = new ImageIcon(new BufferedImage(24, 24, BufferedImage.TYPE_INT_ARGB));
+        FloorPlanPanel panel = new FloorPlanPanel(null);
+        panel.setSize(1200, 900);
+        String[] types = {"Living Room", "Bedroom", "Kitchen", "Bathroom"};
+        for (int i = 0; i < 40; i++) {
+            Room room = new Room(20 + (i % 8) * 140, 20 + (i / 8) * 160, 120, 140, "Room " + i, types[i % types.length]);
+            panel.addRoom(room);
+            room.addDoor(Fixtures.TOP, 20, 20 + Room.DOOR_SIZE);
+            room.addWindow(Fixtures.LEFT, 40, 40 + Room.WINDOW_SIZE);
+            for (int j = 0; j < 3; j++) {
+                room.addFurniture(new Furniture("Chair", room.x + 10 + j * 35, room.y + 60, icon));
+            }
+        }
+        Room selected = panel.getRooms().get(9);
+        selected.selected = true;
+        panel.getRooms().get(10).furnitureList.get(0).setSelected(true);
+
+        BufferedImage image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            paint(panel, g2d);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < FRAMES; i++) {
+            paint(panel, g2d);
+        }
+        long perFrame = (threads.getThreadAllocatedBytes(thread) - before) / FRAMES;
+        g2d.dispose();
+
+        System.out.println("Allocated per frame: " + perFrame + " bytes");
+        if (perFrame > MAX_BYTES_PER_FRAME) {
+            throw new AssertionError("a frame allocated " + perFrame + " bytes, more than " + MAX_BYTES_PER_FRAME);
+        }
+        System.out.println("PaintAllocationTest passed");
+    }
+
+    private static void paint(FloorPlanPanel panel, Graphics2D g2d) {
+        Graphics2D frame = (Graphics2D) g2d.create();
+        panel.paintComponent(frame);
+        frame.dispose();
+    }
+}
@@ -0,0 +1,66 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Checks that a plan whose newest header slot was left half written, as by a save cut short,
+ * is read as it was before that save, and that a plan with no intact slot is refused.
+ * Run with: javac -d out src/*.java test/*.java && java -Djava.awt.headless=true -cp out PlanHeaderTest
+ */
+public class PlanHeaderTest {
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("planit-test");
+        Path path = dir.resolve("plan.plnt");
+        ArrayList<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rooms.add(new Room(i * 200, 0, 150, 120, "Room " + i, "Bedroom"));
+        }
+        PlanFile file = new PlanFile(path);
+        save(file, rooms);
+        rooms.get(3).name = "Renamed";
+        save(file, rooms); // Appends one room and points the second slot at the new index
+
+        check(PlanFormat.read(path).get(3).name.equals("Renamed"), "an incremental save is read back");
+
+        damage(path, PlanFormat.slotOffset(1));
+        ArrayList<Room> before = PlanFormat.read(path);
+        check(before.size() == rooms.size() && before.get(3).name.equals("Room 3"),
+                "a damaged newest slot falls back to the plan as it was before that save");
+
+        damage(path, PlanFormat.slotOffset(0));
+        try {
+            PlanFormat.read(path);
+            check(false, "a plan with both slots damaged is refused");
+        } catch (IOException expected) {
+            // Neither slot can be trusted
+        }
+
+        Files.delete(path);
+        Files.delete(dir);
+        System.out.println("PlanHeaderTest passed");
+    }
+
+    private static void save(PlanFile file, ArrayList<Room> rooms) throws IOException {
+        PlanFile.Save save = file.prepare(rooms, PlanFormat.Compression.NONE);
+        file.write(save);
+        file.saveFinished(true);
+    }
+
+    private static void damage(Path path, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = PlanFormat.readFully(channel, position + 10, 1); // Inside the index offset
+            buffer.put(0, (byte) ~buffer.get(0));
+            PlanFormat.writeFully(channel, buffer, position + 10);
+        }
+    }
+
+    static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.ArrayList;
+
+/**
+ * Checks that rooms added to, removed from or replaced in the plan leave nothing behind in the room index.
+ * Run with: javac -d out src/*.java test/*.java && java -Djava.awt.headless=true -cp out RoomIndexTest
+ */
+public class RoomIndexTest {
+    public static void main(String[] args) throws Exception {
+        SpatialGrid<Room> grid = new SpatialGrid<>(100);
+        Room room = new Room(0, 0, 50, 50, "A", "Bedroom");
+        grid.insert(room, 0, 0, 50, 50);
+        grid.insert(room, 300, 300, 50, 50);
+        ArrayList<Room> found = new ArrayList<>();
+        grid.query(0, 0, 400, 400, found);
+        check(found.size() == 1, "an item inserted twice is found once");
+        found.clear();
+        grid.query(0, 0, 60, 60, found);
+        check(found.isEmpty(), "inserting again leaves nothing at the old bounds");
+        grid.remove(room);
+        found.clear();
+        grid.query(0, 0, 400, 400, found);
+        check(found.isEmpty(), "a removed item is not found");
+
+        FloorPlanPanel panel = new FloorPlanPanel(null);
+        Room first = new Room(0, 0, 100, 100, "First", "Bedroom");
+        Room second = new Room(200, 0, 100, 100, "Second", "Kitchen");
+        panel.addRoom(first);
+        panel.addRoom(second);
+        check(panel.findRoomContainingPoint(250, 50) == second, "an added room is found");
+        panel.removeRoom(second);
+        check(panel.findRoomContainingPoint(250, 50) == null, "a removed room is not found");
+        check(panel.findRoomContainingPoint(50, 50) == first, "the other room is still found");
+
+        // Replacing the plan with as many rooms as before must not leave the old ones indexed
+        Room replacement = new Room(400, 0, 100, 100, "Replacement", "Bathroom");
+        ArrayList<Room> plan = new ArrayList<>();
+        plan.add(replacement);
+        panel.setRooms(plan);
+        plan.clear();
+        check(panel.findRoomContainingPoint(50, 50) == null, "a replaced room is not found");
+        check(panel.findRoomContainingPoint(450, 50) == replacement, "the new room is found");
+        check(panel.getRooms().size() == 1, "the plan does not share the list it was set from");
+        try {
+            panel.getRooms().add(first);
+            check(false, "the plan's rooms cannot be changed around the index");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        System.out.println("RoomIndexTest passed");
+    }
+
+    static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+    }
+}
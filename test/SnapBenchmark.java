@@ -0,0 +1,126 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares SnapEngine with the room snapping it replaced, on random drag positions over
+ * 1k and 10k-room plans: the original scan of every room, on the smaller plan only as it takes
+ * minutes on the larger one, and the same scan over the rooms a room index query returns. Both build the same throwaway arrays and result per query as
+ * before. Reports time and allocation per query, each the best of several runs after warm-up.
+ * Run with: javac -d out src/*.java test/*.java && java -Djava.awt.headless=true -cp out SnapBenchmark
+ */
+public class SnapBenchmark {
+    private static final int SNAP_DISTANCE = 10;
+    private static final int QUERIES = 200_000;
+    private static final int RUNS = 5;
+
+    private interface Snapper {
+        int snap(int position, int otherCoordinate, int size, int otherSize, boolean isHorizontal, Room exclude);
+    }
+
+    public static void main(String[] args) {
+        for (int count : new int[]{1000, 10000}) {
+            // Rooms tiled with small gaps, so most drags have an edge within reach
+            Random random = new Random(7);
+            ArrayList<Room> rooms = new ArrayList<>(count);
+            SpatialGrid<Room> index = new SpatialGrid<>(256);
+            SnapEngine engine = new SnapEngine(SNAP_DISTANCE);
+            for (int i = 0; i < count; i++) {
+                Room room = new Room((i % 100) * 260 + random.nextInt(20), (i / 100) * 260 + random.nextInt(20),
+                        150 + random.nextInt(90), 150 + random.nextInt(90), "Room " + i, "Bedroom");
+                rooms.add(room);
+                index.insert(room, room.x, room.y, room.width, room.height);
+                engine.update(room, room.x, room.y, room.width, room.height);
+            }
+            int[] queries = new int[QUERIES * 4];
+            for (int i = 0; i < queries.length; i += 4) {
+                queries[i] = random.nextInt(100 * 260);
+                queries[i + 1] = random.nextInt(count / 100 * 260);
+                queries[i + 2] = 150 + random.nextInt(90);
+                queries[i + 3] = 150 + random.nextInt(90);
+            }
+            Room dragged = rooms.get(count / 2);
+
+            System.out.println(count + " rooms:");
+            if (count <= 1000) {
+                run("  scan of every room ", (p, o, s, os, h, ex) -> scan(rooms, p, o, s, os, h, ex), queries, dragged);
+            }
+            ArrayList<Room> found = new ArrayList<>();
+            Comparator<Room> stackingOrder = Comparator.comparingLong(index::orderOf);
+            run("  room index and scan", (p, o, s, os, h, ex) -> {
+                found.clear();
+                if (h) {
+                    index.query(p - SNAP_DISTANCE, o, s + 2 * SNAP_DISTANCE, os, found);
+                } else {
+                    index.query(o, p - SNAP_DISTANCE, os, s + 2 * SNAP_DISTANCE, found);
+                }
+                found.sort(stackingOrder);
+                return scan(found, p, o, s, os, h, ex);
+            }, queries, dragged);
+            run("  SnapEngine         ", (p, o, s, os, h, ex) -> engine.snap(p, s, o, os, h, ex).position, queries, dragged);
+        }
+    }
+
+    private static void run(String name, Snapper snapper, int[] queries, Room dragged) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        double bestNanos = Double.MAX_VALUE;
+        double bestBytes = Double.MAX_VALUE;
+        long checksum = 0; // Keeps the queries from being optimised away; edges equally close may be picked differently
+        for (int run = 0; run < 2 * RUNS; run++) {
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < queries.length; i += 4) {
+                // One query per axis, as a drag step makes
+                checksum += snapper.snap(queries[i], queries[i + 1], queries[i + 2], queries[i + 3], true, dragged);
+                checksum += snapper.snap(queries[i + 1], queries[i], queries[i + 3], queries[i + 2], false, dragged);
+            }
+            double nanos = (double) (System.nanoTime() - start) / (queries.length / 2);
+            double allocated = (double) (threads.getThreadAllocatedBytes(thread) - bytes) / (queries.length / 2);
+            if (run >= RUNS) {
+                bestNanos = Math.min(bestNanos, nanos);
+                bestBytes = Math.min(bestBytes, allocated);
+            }
+        }
+        System.out.printf("%s %9.1f ns/query %7.1f bytes/query   (checksum %d)%n", name, bestNanos, bestBytes, checksum);
+    }
+
+    /**
+     * The snapping FloorPlanPanel did before SnapEngine, returning the snapped position.
+     */
+    private static int scan(List<Room> rooms, int position, int otherCoordinate, int size, int otherSize, boolean isHorizontal, Room exclude) {
+        int closestDistance = Integer.MAX_VALUE;
+        int snappedPosition = position;
+        boolean snapped = false;
+        int snapLine = 0;
+        for (Room room : rooms) {
+            if (room == exclude) continue;
+            int[] snapPoints = isHorizontal
+                    ? new int[]{room.x, room.x + room.width}
+                    : new int[]{room.y, room.y + room.height};
+            for (int point : snapPoints) {
+                int[] distances = {
+                        Math.abs(position - point),
+                        Math.abs(position + size - point)
+                };
+                for (int i = 0; i < distances.length; i++) {
+                    if (distances[i] <= SNAP_DISTANCE && distances[i] < closestDistance) {
+                        boolean aligned = isHorizontal
+                                ? (otherCoordinate < room.y + room.height && otherCoordinate + otherSize > room.y)
+                                : (otherCoordinate < room.x + room.width && otherCoordinate + otherSize > room.x);
+                        if (aligned) {
+                            closestDistance = distances[i];
+                            snappedPosition = i == 0 ? point : point - size;
+                            snapped = true;
+                            snapLine = point;
+                        }
+                    }
+                }
+            }
+        }
+        int[] result = {snappedPosition, snapped ? 1 : 0, snapLine}; // Stands in for the SnapResult it returned
+        return result[0];
+    }
+}
@@ -0,0 +1,63 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+/**
+ * Compares the time to paint every room of 1k and 10k-room plans from their cached sprites
+ * against painting them directly, as rooms were painted before they had sprites.
+ * Rooms are drawn in turn across one screen-sized image, so each is really rasterised.
+ * Run with: javac -d out src/*.java test/*.java && java -Djava.awt.headless=true -cp out:src SpriteCacheBenchmark
+ */
+public class SpriteCacheBenchmark {
+    private static final double SCALE = 0.25; // Rooms are 70 pixels, drawn in full
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final int FRAMES = 10;
+
+    public static void main(String[] args) {
+        for (int count : new int[]{1000, 10000}) {
+            ArrayList<Room> rooms = SyntheticPlan.rooms(count, 5, 3);
+            double direct = paint(rooms, false);
+            double cached = paint(rooms, true);
+            System.out.printf("%6d rooms: direct %8.1f ms/frame   cached %8.1f ms/frame   %.1fx%n", count, direct, cached, direct / cached);
+        }
+    }
+
+    /**
+     * Returns the best time of a few frames, after as many unmeasured frames to warm up and fill the cache.
+     */
+    private static double paint(ArrayList<Room> rooms, boolean cached) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        int cell = (int) (SyntheticPlan.SPACING * SCALE);
+        int columns = WIDTH / cell;
+        int cells = columns * (HEIGHT / cell);
+        double best = Double.MAX_VALUE;
+        for (int frame = 0; frame < 2 * FRAMES; frame++) {
+            Graphics2D g2d = image.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.scale(SCALE, SCALE);
+            long start = System.nanoTime();
+            for (int i = 0; i < rooms.size(); i++) {
+                Room room = rooms.get(i);
+                // Moves the room into the next cell of the image, in world units
+                int dx = (i % cells % columns) * SyntheticPlan.SPACING - room.x;
+                int dy = (i % cells / columns) * SyntheticPlan.SPACING - room.y;
+                g2d.translate(dx, dy);
+                if (cached) {
+                    room.drawRooms(g2d, SCALE, null);
+                } else {
+                    room.drawDirect(g2d, SCALE, null);
+                }
+                room.drawFixtures(g2d, null, SCALE);
+                g2d.translate(-dx, -dy);
+            }
+            long elapsed = System.nanoTime() - start;
+            g2d.dispose();
+            if (frame >= FRAMES) {
+                best = Math.min(best, elapsed / 1e6);
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,53 @@
+import java.awt.Image;
+import java.util.ArrayList;
+import javax.swing.ImageIcon;
+
+/**
+ * Builds plans for the benchmarks: a grid of locked rooms, each with a door and a window and
+ * furniture using a few catalog images, so pieces share assets as they do in real plans.
+ * The images are loaded as resources, so src must be on the class path.
+ */
+class SyntheticPlan {
+    static final int SPACING = 300; // Rooms are 280 square, 300 apart
+    private static final int COLUMNS = 100;
+    private static final int ICON_SIZE = 50; // As in the furniture catalog
+    private static final String[] TYPES = {"Living Room", "Bedroom", "Kitchen", "Bathroom"};
+    private static final String[] IMAGES = {"sofa.png", "armchair.png", "bed.png", "table.png", "stove.png", "sink.png"};
+
+    /**
+     * Returns a plan of the given number of rooms, each holding furniturePerRoom pieces (at most 25)
+     * that cycle through the first distinctImages catalog images.
+     */
+    static ArrayList<Room> rooms(int count, int furniturePerRoom, int distinctImages) {
+        AssetRegistry.Asset[] assets = new AssetRegistry.Asset[Math.min(distinctImages, IMAGES.length)];
+        for (int i = 0; i < assets.length; i++) {
+            assets[i] = asset(IMAGES[i]);
+        }
+        ArrayList<Room> rooms = new ArrayList<>(count);
+        for (int r = 0; r < count; r++) {
+            Room room = new Room((r % COLUMNS) * SPACING, (r / COLUMNS) * SPACING, 280, 280, "Room " + r, TYPES[r % TYPES.length]);
+            room.lock = true;
+            room.addDoor(Fixtures.TOP, 10, 10 + Room.DOOR_SIZE);
+            room.addWindow(Fixtures.LEFT, 100, 100 + Room.WINDOW_SIZE);
+            for (int f = 0; f < furniturePerRoom; f++) {
+                Furniture furniture = new Furniture("Piece " + f, assets[f % assets.length]);
+                furniture.setX(room.x + 10 + (f % 5) * 52);
+                furniture.setY(room.y + 10 + (f / 5) * 52);
+                room.addFurniture(furniture);
+            }
+            rooms.add(room);
+        }
+        return rooms;
+    }
+
+    /**
+     * Returns the asset of a catalog image, registered under the same id as the catalog registers it.
+     */
+    static AssetRegistry.Asset asset(String file) {
+        String path = "Pngs/Furniture/" + file;
+        return AssetRegistry.shared().get(path + "@" + ICON_SIZE, () -> {
+            Image source = new ImageIcon(SyntheticPlan.class.getResource(path)).getImage();
+            return SpriteCache.shared().get(null, source, ICON_SIZE, ICON_SIZE, 0, 1);
+        });
+    }
+}